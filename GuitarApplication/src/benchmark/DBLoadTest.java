@@ -0,0 +1,203 @@
+package benchmark;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import client.ConnectionPool;
+import client.DBConnect;
+import client.PooledConnection;
+
+/**
+ * This class fires many concurrent logins through DBConnect and its ConnectionPool and prints the throughput, the
+ * login latency percentiles and the pool's metrics. It then compares the per-call latency of one thread repeating the
+ * login query three ways: SQL built by concatenation, a PreparedStatement prepared for every call, and DBConnect's
+ * PreparedStatement cached on the connection. It runs against the local MySQL/MariaDB guitar_helper database by
+ * default; any JDBC database whose driver is on the classpath can stand in for it, for example an in-memory H2
+ * database with --url=jdbc:h2:mem:guitar_helper;MODE=MySQL;DB_CLOSE_DELAY=-1 --setup. Run with:
+ * <pre>java benchmark.DBLoadTest [--url=...] [--user=admin] [--password=password] [--threads=32] [--logins=5000]
+ * [--pool=8] [--setup]</pre>
+ * @author Jonathan Novins
+ * @version 1.0
+ */
+public class DBLoadTest {
+
+/**
+ * The account every login uses; created if it does not exist yet
+ */
+	private static final String USERNAME = "load_test", PASSWORD = "load_test";
+
+/**
+ * Runs the load test
+ * @param args --url, --user, --password, --threads, --logins and --pool to configure the run, --setup to create
+ * the user_accounts table first if it is missing
+ * @throws Exception if the database cannot be reached or the test account cannot be created
+ */
+	public static void main(String[] args) throws Exception {
+		String url = DBConnect.URL;
+		String user = "admin";
+		String password = "password";
+		int threads = 32;
+		int logins = 5000;
+		int poolSize = ConnectionPool.DEFAULT_MAX_SIZE;
+		boolean setup = false;
+		for(String arg : args) {
+			if(arg.startsWith("--url=")) {
+				url = arg.substring(6);
+			}
+			else if(arg.startsWith("--user=")) {
+				user = arg.substring(7);
+			}
+			else if(arg.startsWith("--password=")) {
+				password = arg.substring(11);
+			}
+			else if(arg.startsWith("--threads=")) {
+				threads = Integer.parseInt(arg.substring(10).trim());
+			}
+			else if(arg.startsWith("--logins=")) {
+				logins = Integer.parseInt(arg.substring(9).trim());
+			}
+			else if(arg.startsWith("--pool=")) {
+				poolSize = Integer.parseInt(arg.substring(7).trim());
+			}
+			else if(arg.equals("--setup")) {
+				setup = true;
+			}
+		}
+
+		ConnectionPool pool = new ConnectionPool(url, user, password, poolSize,
+				ConnectionPool.DEFAULT_BORROW_TIMEOUT_MILLIS, ConnectionPool.DEFAULT_IDLE_TIMEOUT_MILLIS,
+				ConnectionPool.DEFAULT_MAX_LIFETIME_MILLIS);
+		if(setup) {
+			createTable(pool);
+		}
+		DBConnect db = new DBConnect(pool);
+		if(!db.isTaken(USERNAME)) {
+			db.createAccount(USERNAME, PASSWORD);
+		}
+
+		System.out.println("***DB LOAD TEST: " + logins + " logins from " + threads + " threads through a pool of "
+				+ poolSize + "***");
+		for(int round = 0; round < 2; round++) { // the first round warms up the JIT and fills the pool
+			run(db, threads, round == 0 ? Math.min(logins, 500) : logins, round == 1);
+		}
+		compareStatements(db, pool, Math.max(1000, logins / 5));
+		System.out.println(pool.report());
+		db.close();
+	}
+
+/**
+ * Times the login query on a single thread with a concatenated Statement, a PreparedStatement prepared every call
+ * and DBConnect's cached PreparedStatement, after warming each up
+ */
+	private static void compareStatements(DBConnect db, ConnectionPool pool, int calls) throws SQLException {
+		String sql = "SELECT user_password FROM user_accounts WHERE user_name = ?";
+		double concatenated = 0, prepared = 0, cached = 0;
+		for(int round = 0; round < 2; round++) {
+			long start = System.nanoTime();
+			for(int i = 0; i < calls; i++) {
+				try(PooledConnection pooled = pool.borrow();
+						Statement stmt = pooled.getConnection().createStatement();
+						ResultSet rs = stmt.executeQuery("SELECT user_password FROM user_accounts WHERE user_name = '"
+								+ USERNAME + "'")) {
+					rs.next();
+				}
+			}
+			concatenated = (System.nanoTime() - start) / 1e6 / calls;
+
+			start = System.nanoTime();
+			for(int i = 0; i < calls; i++) {
+				try(PooledConnection pooled = pool.borrow();
+						PreparedStatement stmt = pooled.getConnection().prepareStatement(sql)) {
+					stmt.setString(1, USERNAME);
+					try(ResultSet rs = stmt.executeQuery()) {
+						rs.next();
+					}
+				}
+			}
+			prepared = (System.nanoTime() - start) / 1e6 / calls;
+
+			start = System.nanoTime();
+			for(int i = 0; i < calls; i++) {
+				db.login(USERNAME, PASSWORD);
+			}
+			cached = (System.nanoTime() - start) / 1e6 / calls;
+		}
+		System.out.println(String.format("***LOGIN QUERY: concatenated %.3f ms/call, prepared per call %.3f ms/call, "
+				+ "cached PreparedStatement %.3f ms/call***", concatenated, prepared, cached));
+	}
+
+/**
+ * Runs one round of logins and prints its results if asked to
+ */
+	private static void run(DBConnect db, int threads, int logins, boolean print) throws InterruptedException {
+		long[] latencies = new long[logins];
+		AtomicInteger next = new AtomicInteger();
+		AtomicInteger failures = new AtomicInteger();
+		CountDownLatch startGate = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		for(int t = 0; t < threads; t++) {
+			executor.execute(() -> {
+				try {
+					startGate.await();
+				}
+				catch(InterruptedException e) {
+					return;
+				}
+				int i;
+				while((i = next.getAndIncrement()) < logins) {
+					long start = System.nanoTime();
+					try {
+						if(!db.login(USERNAME, PASSWORD)) {
+							failures.incrementAndGet();
+						}
+					}
+					catch(SQLException e) {
+						failures.incrementAndGet();
+					}
+					latencies[i] = System.nanoTime() - start;
+				}
+			});
+		}
+		long start = System.nanoTime();
+		startGate.countDown();
+		executor.shutdown();
+		executor.awaitTermination(10, TimeUnit.MINUTES);
+		long elapsed = System.nanoTime() - start;
+
+		if(print) {
+			Arrays.sort(latencies);
+			System.out.println(String.format("***DB LOGINS: %.0f per second, latency p50 %.2f ms p99 %.2f ms max %.2f ms, "
+					+ "%d failed***", logins * 1e9 / elapsed, percentile(latencies, 0.50), percentile(latencies, 0.99),
+					latencies[logins - 1] / 1e6, failures.get()));
+		}
+	}
+
+/**
+ * Finds a percentile of sorted latencies
+ * @return The latency in milliseconds
+ */
+	private static double percentile(long[] sorted, double fraction) {
+		return sorted[Math.min(sorted.length - 1, (int) (fraction * sorted.length))] / 1e6;
+	}
+
+/**
+ * Creates the user_accounts table from guitar_helper.sql if it does not exist, for a fresh stand-in database
+ */
+	private static void createTable(ConnectionPool pool) throws SQLException {
+		try(PooledConnection pooled = pool.borrow();
+				Statement stmt = pooled.getConnection().createStatement()) {
+			stmt.execute("CREATE TABLE IF NOT EXISTS user_accounts ("
+					+ "user_id INT NOT NULL AUTO_INCREMENT PRIMARY KEY, "
+					+ "user_name VARCHAR(20) NOT NULL UNIQUE, "
+					+ "user_password VARCHAR(25) NOT NULL, "
+					+ "user_date_create DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+		}
+	}
+}
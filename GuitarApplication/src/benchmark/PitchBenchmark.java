@@ -0,0 +1,523 @@
+package benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import be.tarsos.dsp.AudioDispatcher;
+import be.tarsos.dsp.AudioEvent;
+import be.tarsos.dsp.AudioProcessor;
+import be.tarsos.dsp.io.TarsosDSPAudioFormat;
+import be.tarsos.dsp.io.jvm.AudioDispatcherFactory;
+import be.tarsos.dsp.pitch.PitchDetectionHandler;
+import be.tarsos.dsp.pitch.PitchDetectionResult;
+import be.tarsos.dsp.pitch.PitchDetector;
+import be.tarsos.dsp.pitch.PitchProcessor;
+import be.tarsos.dsp.pitch.PitchProcessor.PitchEstimationAlgorithm;
+import client.DecimatingPitchProcessor;
+import client.DetectorProcessor;
+import client.EnsemblePitchProcessor;
+import client.BlockedYin;
+import client.CaptureProfile;
+import client.NoteSmoother;
+import client.NoteTable;
+import client.Sound;
+import client.TunerPitchHandler;
+
+/**
+ * This class runs the same audio path that LauncherUI wires up (AudioDispatcher, pitch stage, pitch handler and
+ * nearest-note lookup) headless over synthetic guitar signals, and prints the cost and accuracy of every pitch stage
+ * at several buffer sizes. Every configuration is warmed up before it is measured. Finally it checks that the pitch
+ * handler path allocates nothing per frame, and fails if it does. Run with:
+ * <pre>java benchmark.PitchBenchmark [--quick] [--sizes=1024,2048] [--stages=YIN,MPM]</pre>
+ * @author Jonathan Novins
+ * @version 1.0
+ */
+public class PitchBenchmark {
+
+/**
+ * Builds the pitch stage under test for a given window, feeding its results to the received handler
+ */
+	public interface StageFactory {
+		/**
+		 * Creates a new pitch stage
+		 * @param sampleRate The sample rate in hz of the audio
+		 * @param bufferSize The number of samples in each analysis window
+		 * @param handler The handler every detected pitch must be passed to
+		 * @return The AudioProcessor that should be added to the dispatcher
+		 */
+		AudioProcessor create(float sampleRate, int bufferSize, PitchDetectionHandler handler);
+	}
+
+/**
+ * Sample rate of every synthetic signal; matches the live capture profiles
+ */
+	private static final int SAMPLE_RATE = 44100;
+
+/**
+ * A detected pitch is counted as accurate when it is within this many cents of the true fundamental
+ */
+	private static final double ACCURATE_CENTS = 10;
+
+/**
+ * Number of untimed passes over the signals before a configuration is measured
+ */
+	private static final int WARMUP_PASSES = 1;
+
+/**
+ * Number of timed passes that are averaged for every configuration
+ */
+	private static final int MEASURED_PASSES = 3;
+
+/**
+ * Number of frames the pitch handler path is warmed up with, and then measured over
+ */
+	private static final int HANDLER_FRAMES = 200000;
+
+/**
+ * Keeps lookup results alive so the JIT cannot remove the loops being timed
+ */
+	private static volatile long sink;
+
+/**
+ * One synthetic note along with the fundamental it was generated at
+ */
+	private static class Note {
+		final float[] signal;
+		final double frequency;
+
+		Note(float[] signal, double frequency) {
+			this.signal = signal;
+			this.frequency = frequency;
+		}
+	}
+
+/**
+ * Pitch handler that scores every pitched frame against the true fundamental and performs the nearest-note lookup.
+ * Accuracy does not depend on probability, since AMDF and DYNAMIC_WAVELET always report -1; how many frames would
+ * also pass LauncherUI's tuner gate is counted separately.
+ */
+	private static class Scorer implements PitchDetectionHandler {
+		final NoteTable noteTable = new NoteTable();
+		double expected;
+		long frames;
+		long gated;
+		long detected;
+		long accurate;
+		long octaveErrors;
+		double absCents;
+
+		@Override
+		public void handlePitch(PitchDetectionResult result, AudioEvent audioEvent) {
+			frames++;
+			float pitch = result.getPitch();
+			if(pitch > TunerPitchHandler.MIN_PITCH && result.getProbability() > TunerPitchHandler.MIN_PROBABILITY) {
+				gated++;
+			}
+			if(result.isPitched() && pitch > 0) {
+				detected++;
+				sink += noteTable.nearestIndex(pitch);
+				double cents = 1200 * Math.log(pitch / expected) / Math.log(2);
+				double octaveCents = Math.min(Math.abs(cents - 1200), Math.abs(cents + 1200));
+				if(Math.abs(cents) <= ACCURATE_CENTS) {
+					accurate++;
+					absCents += Math.abs(cents);
+				}
+				else if(octaveCents <= ACCURATE_CENTS * 5) {
+					octaveErrors++;
+				}
+			}
+		}
+
+		void reset() {
+			frames = 0;
+			gated = 0;
+			detected = 0;
+			accurate = 0;
+			octaveErrors = 0;
+			absCents = 0;
+		}
+	}
+
+/**
+ * Runs every selected stage at every selected buffer size and prints one row per combination
+ * @param args --quick for a reduced note set, --sizes=a,b,... and --stages=NAME,... to narrow the run
+ * @throws UnsupportedAudioFileException if TarsosDSP refuses the synthetic signal format
+ */
+	public static void main(String[] args) throws UnsupportedAudioFileException {
+		boolean quick = false;
+		int[] sizes = new int[] {1024, 2048, 4096};
+		List<String> selected = null;
+		for(String arg : args) {
+			if(arg.equals("--quick")) {
+				quick = true;
+			}
+			else if(arg.startsWith("--sizes=")) {
+				String[] parts = arg.substring(8).split(",");
+				sizes = new int[parts.length];
+				for(int i = 0; i < parts.length; i++) {
+					sizes[i] = Integer.parseInt(parts[i].trim());
+				}
+			}
+			else if(arg.startsWith("--stages=")) {
+				selected = new ArrayList<String>();
+				for(String name : arg.substring(9).split(",")) {
+					selected.add(name.trim().toUpperCase());
+				}
+			}
+		}
+
+		List<Note> notes = generateNotes(quick);
+		System.out.println("***PITCH BENCHMARK: " + notes.size() + " synthetic notes at " + SAMPLE_RATE + " hz***");
+		System.out.println(String.format("%-18s %6s %12s %12s %12s %10s %10s %10s %10s %10s", "STAGE", "BUFFER",
+				"ns/frame", "cpu ns/frame", "bytes/frame", "detected%", "accurate%", "octave%", "|cents|", "gate%"));
+
+		for(Map.Entry<String, StageFactory> stage : stages().entrySet()) {
+			if(selected != null && !selected.contains(stage.getKey())) {
+				continue;
+			}
+			for(int size : sizes) {
+				runStage(stage.getKey(), stage.getValue(), size, notes);
+			}
+		}
+
+		DecimatingPitchProcessor decimating = new DecimatingPitchProcessor(SAMPLE_RATE, sizes[0],
+				DecimatingPitchProcessor.DEFAULT_FACTOR, null);
+		System.out.println(String.format("***DECIMATION: factor %d adds %.2f ms of filter delay; windows cover the same span***",
+				decimating.getFactor(), decimating.getDelayMillis()));
+		benchmarkYinKernels(notes, sizes);
+		benchmarkNoteLookup();
+		benchmarkNoteSmoother(CaptureProfile.LOW_LATENCY); // the default profile
+		checkHandlerAllocation();
+	}
+
+/**
+ * Lists every pitch stage the benchmark knows how to build, in the order they are reported
+ * @return Stage names mapped to the factories that build them
+ */
+	static Map<String, StageFactory> stages() {
+		Map<String, StageFactory> stages = new LinkedHashMap<String, StageFactory>();
+		PitchEstimationAlgorithm[] algorithms = new PitchEstimationAlgorithm[] {PitchEstimationAlgorithm.YIN,
+				PitchEstimationAlgorithm.FFT_YIN, PitchEstimationAlgorithm.MPM, PitchEstimationAlgorithm.AMDF,
+				PitchEstimationAlgorithm.DYNAMIC_WAVELET};
+		for(final PitchEstimationAlgorithm algorithm : algorithms) {
+			stages.put(algorithm.name(), (sampleRate, bufferSize, handler) ->
+					new PitchProcessor(algorithm, sampleRate, bufferSize, handler));
+		}
+		stages.put("BLOCKED_YIN", (sampleRate, bufferSize, handler) ->
+				new DetectorProcessor(new BlockedYin(sampleRate, bufferSize), handler));
+		stages.put("DECIMATED_YIN", (sampleRate, bufferSize, handler) ->
+				new DecimatingPitchProcessor(sampleRate, bufferSize, DecimatingPitchProcessor.DEFAULT_FACTOR,
+						PitchEstimationAlgorithm.YIN.getDetector(sampleRate / DecimatingPitchProcessor.DEFAULT_FACTOR,
+								bufferSize / DecimatingPitchProcessor.DEFAULT_FACTOR), handler));
+		stages.put("DECIMATED_BLOCKED_YIN", (sampleRate, bufferSize, handler) ->
+				new DecimatingPitchProcessor(sampleRate, bufferSize, DecimatingPitchProcessor.DEFAULT_FACTOR, handler));
+		stages.put("ENSEMBLE", EnsemblePitchProcessor::new);
+		return stages;
+	}
+
+/**
+ * Generates one pluck for every fret of every string (or a subset when quick is set)
+ * @param quick Whether to only use every third fret with shorter notes
+ * @return The generated notes
+ */
+	private static List<Note> generateNotes(boolean quick) {
+		SyntheticGuitar guitar = new SyntheticGuitar(SAMPLE_RATE, 42);
+		List<Note> notes = new ArrayList<Note>();
+		int fretStep = quick ? 3 : 1;
+		double seconds = quick ? 0.3 : 0.6;
+		for(int string = 0; string < SyntheticGuitar.STRINGS; string++) {
+			for(int fret = 0; fret <= SyntheticGuitar.FRETS; fret += fretStep) {
+				notes.add(new Note(guitar.pluck(string, fret, seconds), guitar.frequency(string, fret)));
+			}
+		}
+		return notes;
+	}
+
+/**
+ * Warms up, measures and prints a single stage at a single buffer size. Windows overlap by 50%. Besides the wall time
+ * per frame it prints the CPU time the dispatching thread itself spent per frame, which is what a stage costs the
+ * audio thread; the two differ for stages that hand work to threads of their own, like ENSEMBLE.
+ */
+	private static void runStage(String name, StageFactory factory, int bufferSize, List<Note> notes)
+			throws UnsupportedAudioFileException {
+		Scorer scorer = new Scorer();
+		for(int pass = 0; pass < WARMUP_PASSES; pass++) {
+			runPass(factory, bufferSize, notes, scorer);
+		}
+
+		scorer.reset();
+		long allocatedBefore = allocatedBytes();
+		long cpuBefore = ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime();
+		long start = System.nanoTime();
+		for(int pass = 0; pass < MEASURED_PASSES; pass++) {
+			runPass(factory, bufferSize, notes, scorer);
+		}
+		long elapsed = System.nanoTime() - start;
+		long cpu = ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime() - cpuBefore;
+		long allocated = allocatedBytes() - allocatedBefore;
+
+		long frames = Math.max(1, scorer.frames);
+		System.out.println(String.format("%-18s %6d %12.0f %12.0f %12.0f %10.1f %10.1f %10.1f %10.2f %10.1f", name,
+				bufferSize, (double) elapsed / frames, cpuBefore < 0 ? Double.NaN : (double) cpu / frames,
+				allocatedBefore < 0 ? Double.NaN : (double) allocated / frames,
+				100.0 * scorer.detected / frames, 100.0 * scorer.accurate / frames,
+				100.0 * scorer.octaveErrors / frames,
+				scorer.accurate == 0 ? Double.NaN : scorer.absCents / scorer.accurate, 100.0 * scorer.gated / frames));
+	}
+
+/**
+ * Pushes every note through a freshly built dispatcher and stage, exactly as the live application would
+ */
+	private static void runPass(StageFactory factory, int bufferSize, List<Note> notes, Scorer scorer)
+			throws UnsupportedAudioFileException {
+		for(Note note : notes) {
+			scorer.expected = note.frequency;
+			AudioDispatcher dispatcher = AudioDispatcherFactory.fromFloatArray(note.signal, SAMPLE_RATE, bufferSize,
+					bufferSize / 2);
+			AudioProcessor stage = factory.create(SAMPLE_RATE, bufferSize, scorer);
+			dispatcher.addAudioProcessor(stage);
+			dispatcher.run();
+			if(stage instanceof EnsemblePitchProcessor) {
+				((EnsemblePitchProcessor) stage).shutdown(); // its workers outlive the dispatcher
+			}
+		}
+	}
+
+/**
+ * Times TarsosDSP's YIN detector against BlockedYin on the same windows, outside the dispatcher, and checks that both
+ * return exactly the same pitch, probability and pitched flag for every window
+ */
+	private static void benchmarkYinKernels(List<Note> notes, int[] sizes) {
+		for(int size : sizes) {
+			List<float[]> windows = new ArrayList<float[]>();
+			for(Note note : notes) {
+				for(int offset = 0; offset + size <= note.signal.length; offset += size / 2) {
+					float[] window = new float[size];
+					System.arraycopy(note.signal, offset, window, 0, size);
+					windows.add(window);
+				}
+			}
+			PitchDetector yin = PitchEstimationAlgorithm.YIN.getDetector(SAMPLE_RATE, size);
+			BlockedYin blockedYin = new BlockedYin(SAMPLE_RATE, size);
+
+			int mismatches = 0;
+			for(float[] window : windows) {
+				PitchDetectionResult expected = yin.getPitch(window);
+				float pitch = expected.getPitch();
+				float probability = expected.getProbability();
+				boolean pitched = expected.isPitched();
+				PitchDetectionResult actual = blockedYin.getPitch(window);
+				if(Float.floatToIntBits(pitch) != Float.floatToIntBits(actual.getPitch())
+						|| Float.floatToIntBits(probability) != Float.floatToIntBits(actual.getProbability())
+						|| pitched != actual.isPitched()) {
+					mismatches++;
+				}
+			}
+
+			for(int warmup = 0; warmup < 2; warmup++) {
+				timeDetector(yin, windows);
+				timeDetector(blockedYin, windows);
+			}
+			double reference = timeDetector(yin, windows);
+			double fast = timeDetector(blockedYin, windows);
+			System.out.println(String.format("***YIN KERNEL %d: TarsosDSP %.0f ns/frame, BlockedYin %.0f ns/frame (%.2fx), "
+					+ "%d of %d frames differ***", size, reference, fast, reference / fast, mismatches, windows.size()));
+		}
+	}
+
+	private static double timeDetector(PitchDetector detector, List<float[]> windows) {
+		long sum = 0;
+		long start = System.nanoTime();
+		for(float[] window : windows) {
+			sum += Float.floatToIntBits(detector.getPitch(window).getPitch());
+		}
+		long elapsed = System.nanoTime() - start;
+		sink += sum;
+		return (double) elapsed / windows.size();
+	}
+
+/**
+ * Compares the constant-time NoteTable lookup with the linear scan the tuner used to do
+ */
+	private static void benchmarkNoteLookup() {
+		NoteTable noteTable = new NoteTable();
+		double[] frequencies = noteTable.getFrequencies();
+		float[] inputs = new float[1 << 16];
+		Random random = new Random(7);
+		for(int i = 0; i < inputs.length; i++) {
+			inputs[i] = (float) (75 + random.nextDouble() * 1100);
+		}
+
+		int rounds = 200;
+		for(int warmup = 0; warmup < 2; warmup++) {
+			timeTableLookup(noteTable, inputs, rounds);
+			timeLinearLookup(frequencies, inputs, rounds);
+		}
+		double table = timeTableLookup(noteTable, inputs, rounds);
+		double linear = timeLinearLookup(frequencies, inputs, rounds);
+		System.out.println(String.format("***NOTE LOOKUP: NoteTable %.1f ns/op, linear scan %.1f ns/op***", table, linear));
+	}
+
+	private static double timeTableLookup(NoteTable noteTable, float[] inputs, int rounds) {
+		long sum = 0;
+		long start = System.nanoTime();
+		for(int r = 0; r < rounds; r++) {
+			for(int i = 0; i < inputs.length; i++) {
+				sum += noteTable.nearestIndex(inputs[i]);
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		sink += sum;
+		return (double) elapsed / ((long) rounds * inputs.length);
+	}
+
+	private static double timeLinearLookup(double[] frequencies, float[] inputs, int rounds) {
+		long sum = 0;
+		long start = System.nanoTime();
+		for(int r = 0; r < rounds; r++) {
+			for(int i = 0; i < inputs.length; i++) {
+				float noteFreq = inputs[i];
+				int nearestIndex = 0;
+				double distance = Math.abs(frequencies[0] - noteFreq);
+				for(int j = 1; j < frequencies.length; j++) {
+					double testDist = Math.abs(frequencies[j] - noteFreq);
+					if(testDist < distance) {
+						nearestIndex = j;
+						distance = testDist;
+					}
+				}
+				sum += nearestIndex;
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		sink += sum;
+		return (double) elapsed / ((long) rounds * inputs.length);
+	}
+
+/**
+ * Runs NoteSmoother through two scenarios at the hop of the received capture profile. Jitter: 1000 frames of a pitch
+ * sitting on the boundary between A2 and A#2 with 4 cents of noise and an octave error every 97th frame, counting how
+ * often the raw lookup and the smoothed output change note after the first, and when the output last changed. Step:
+ * 100 frames of A2 then C3, counting how many frames the smoothed output takes to follow.
+ * @param profile The profile whose hop separates the frames' time stamps
+ */
+	private static void benchmarkNoteSmoother(CaptureProfile profile) {
+		double hop = profile.getHopMillis() / 1000;
+		NoteTable noteTable = new NoteTable();
+		NoteSmoother smoother = new NoteSmoother(noteTable);
+		Random random = new Random(5);
+		double boundary = 110 * Math.pow(2, 50.0 / 1200);
+		int rawChanges = 0;
+		int smoothedChanges = 0;
+		int rawIndex = -1;
+		int smoothedIndex = -1;
+		int lastChange = -1;
+		int frames = 1000;
+		for(int i = 0; i < frames; i++) {
+			float pitch = (float) (boundary * Math.pow(2, random.nextGaussian() * 4 / 1200));
+			if(i % 97 == 0) {
+				pitch *= 2;
+			}
+			int index = noteTable.nearestIndex(pitch);
+			if(rawIndex >= 0 && index != rawIndex) {
+				rawChanges++;
+			}
+			rawIndex = index;
+			if(smoother.update(pitch, i * hop)) {
+				if(smoothedIndex >= 0 && smoother.getNearestIndex() != smoothedIndex) {
+					smoothedChanges++;
+					lastChange = i;
+				}
+				smoothedIndex = smoother.getNearestIndex();
+			}
+		}
+		System.out.println(String.format("***NOTE SMOOTHER JITTER: raw lookup changed note %d times in %d frames, smoothed "
+				+ "output %d times (last at frame %d); %s", rawChanges, frames, smoothedChanges, lastChange,
+				smoother.report().substring(3)));
+
+		smoother = new NoteSmoother(noteTable);
+		int target = noteTable.nearestIndex(130.81f);
+		int lag = -1;
+		for(int i = 0; i < 200 && lag < 0; i++) {
+			float pitch = i < 100 ? 110f : 130.81f;
+			smoother.update(pitch, i * hop);
+			if(i >= 100 && smoother.getNearestIndex() == target) {
+				lag = i - 100 + 1;
+			}
+		}
+		System.out.println(String.format("***NOTE SMOOTHER STEP: A2 to C3 reported after %d frames (%.1f ms at the %s "
+				+ "profile's %.1f ms hop)***", lag, lag * hop * 1000, profile, profile.getHopMillis()));
+	}
+
+/**
+ * Checks that the pitch handler path allocates nothing once it is warmed up. A played phrase of held notes with
+ * vibrato, jitter, unpitched frames and a new note every 50 frames is fed through the TunerPitchHandler that LauncherUI
+ * uses HANDLER_FRAMES times to
+ * warm it up, and HANDLER_FRAMES more times while the thread's allocation is measured.
+ * @throws IllegalStateException if the measured frames allocated anything
+ */
+	private static void checkHandlerAllocation() {
+		Random random = new Random(11);
+		float[] pitches = new float[4096];
+		float[] probabilities = new float[pitches.length];
+		double note = 110;
+		for(int i = 0; i < pitches.length; i++) {
+			if(i % 50 == 0) {
+				note = 82.41 * Math.pow(2, random.nextInt(36) / 12.0);
+			}
+			pitches[i] = (float) (note * Math.pow(2, (8 * Math.sin(i * 0.3) + random.nextGaussian() * 3) / 1200));
+			probabilities[i] = random.nextInt(10) == 0 ? 0.5f : 0.95f;
+		}
+
+		Sound sound = new Sound();
+		sound.setSoundRun(1);
+		NoteTable noteTable = new NoteTable();
+		TunerPitchHandler handler = new TunerPitchHandler(sound, new NoteSmoother(noteTable), noteTable.getNoteNames(), false);
+		PitchDetectionResult result = new PitchDetectionResult();
+		result.setPitched(true);
+		AudioEvent event = new AudioEvent(new TarsosDSPAudioFormat(SAMPLE_RATE, 16, 1, true, false));
+		feedHandler(handler, result, event, pitches, probabilities, 0);
+		long warmUpPublished = handler.getPublished();
+		long probe = allocatedBytes();
+		probe = allocatedBytes() - probe; // reading the thread bean allocates a little itself
+		long before = allocatedBytes();
+		feedHandler(handler, result, event, pitches, probabilities, HANDLER_FRAMES);
+		long allocated = allocatedBytes() - before - probe;
+
+		System.out.println(String.format("***HANDLER PATH: %s bytes allocated over %d frames (%d published)***",
+				before < 0 ? "unmeasured" : Long.toString(allocated), HANDLER_FRAMES,
+				handler.getPublished() - warmUpPublished));
+		if(before >= 0 && allocated > 0) {
+			throw new IllegalStateException("The pitch handler path allocated " + allocated + " bytes once warmed up");
+		}
+	}
+
+/**
+ * Passes HANDLER_FRAMES results to the handler, one 1024-sample hop apart, reusing the same result and event
+ */
+	private static void feedHandler(PitchDetectionHandler handler, PitchDetectionResult result, AudioEvent event,
+			float[] pitches, float[] probabilities, int firstFrame) {
+		for(int frame = firstFrame; frame < firstFrame + HANDLER_FRAMES; frame++) {
+			result.setPitch(pitches[frame % pitches.length]);
+			result.setProbability(probabilities[frame % probabilities.length]);
+			event.setBytesProcessed(frame * 1024L * 2);
+			handler.handlePitch(result, event);
+		}
+	}
+
+/**
+ * Finds how many bytes the current thread has allocated so far, using the HotSpot-specific thread bean
+ * @return The allocated byte count, or -1 if the JVM does not support the measurement
+ */
+	static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if(bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,119 @@
+package benchmark;
+
+import client.PitchSnapshot;
+import client.Sound;
+
+/**
+ * This class checks that readers of the pitch state published by Sound never see values from two different frames.
+ * One thread publishes pitches as fast as it can, the way the audio thread does, while another reads them through
+ * Sound.readSnapshot(). Every published frame is derived from its sequence number, so the reader can tell whether the
+ * frequency, probability, nearest index, cents and time stamp it received all belong together. The same reader then
+ * pairs up the single-value getters, which are separate reads, to show that the check does catch values from
+ * different frames. Run with:
+ * <pre>java benchmark.SnapshotStressTest [--seconds=5]</pre>
+ * @author Jonathan Novins
+ * @version 1.0
+ */
+public class SnapshotStressTest {
+
+/**
+ * Set once the reader has finished, to stop the writer
+ */
+	private static volatile boolean done;
+
+/**
+ * Runs the stress test
+ * @param args --seconds=n to set how long each phase runs
+ * @throws InterruptedException if interrupted while waiting for the writer
+ * @throws IllegalStateException if any snapshot mixed values from two frames
+ */
+	public static void main(String[] args) throws InterruptedException {
+		long seconds = 5;
+		for(String arg : args) {
+			if(arg.startsWith("--seconds=")) {
+				seconds = Long.parseLong(arg.substring(10).trim());
+			}
+		}
+
+		Sound sound = new Sound();
+		Thread writer = new Thread(() -> {
+			for(long frame = 1; !done; frame++) {
+				sound.publishPitch(frequency(frame), probability(frame), index(frame), cents(frame), frame);
+			}
+		}, "stress-writer");
+		writer.start();
+
+		PitchSnapshot snapshot = new PitchSnapshot();
+		long reads = 0;
+		long torn = 0;
+		long end = System.nanoTime() + seconds * 1000000000L;
+		while(System.nanoTime() < end) {
+			sound.readSnapshot(snapshot);
+			long frame = snapshot.getSequence();
+			reads++;
+			if(frame == 0) {
+				continue; // nothing published yet
+			}
+			if((long) snapshot.getTimeStamp() != frame || snapshot.getNoteFreq() != frequency(frame)
+					|| snapshot.getNoteProb() != probability(frame) || snapshot.getNearestIndex() != index(frame)
+					|| snapshot.getNoteCents() != cents(frame)) {
+				torn++;
+			}
+		}
+
+		long pairs = 0;
+		long mismatched = 0;
+		end = System.nanoTime() + seconds * 1000000000L;
+		while(System.nanoTime() < end) {
+			float freq = sound.getNoteFreq();
+			float prob = sound.getNoteProb();
+			pairs++;
+			if(prob != probability(frame(freq))) {
+				mismatched++;
+			}
+		}
+		done = true;
+		writer.join();
+
+		System.out.println(String.format("***SNAPSHOT STRESS: %d snapshots read, %d torn | separate getters: %d of %d "
+				+ "frequency/probability pairs from different frames***", reads, torn, mismatched, pairs));
+		if(torn > 0) {
+			throw new IllegalStateException(torn + " snapshots mixed values from two frames");
+		}
+	}
+
+/**
+ * The frequency published with a frame; cycles through 4096 distinct values
+ */
+	private static float frequency(long frame) {
+		return 80 + (frame & 4095) * 0.25f;
+	}
+
+/**
+ * Recovers the frame number, modulo 4096, that a published frequency came from
+ */
+	private static long frame(float frequency) {
+		return (long) ((frequency - 80) * 4);
+	}
+
+/**
+ * The probability published with a frame
+ */
+	private static float probability(long frame) {
+		return 0.5f + (frame & 4095) / 8192f;
+	}
+
+/**
+ * The nearest index published with a frame
+ */
+	private static int index(long frame) {
+		return (int) (frame % 49);
+	}
+
+/**
+ * The cents published with a frame
+ */
+	private static float cents(long frame) {
+		return (frame % 101) - 50;
+	}
+}
@@ -0,0 +1,134 @@
+package benchmark;
+
+import java.util.Random;
+import client.NoteTable;
+
+/**
+ * This class generates deterministic synthetic plucked-string signals so that the pitch detection pipeline can be
+ * measured without a microphone. Each pluck is built from a handful of slightly inharmonic partials that decay
+ * faster the higher they are, plus a little broadband noise, which is close enough to a real guitar to provoke the
+ * same octave and harmonic errors.
+ * @author Jonathan Novins
+ * @version 1.0
+ */
+public class SyntheticGuitar {
+
+/**
+ * Number of strings on a standard guitar
+ */
+	public static final int STRINGS = 6;
+
+/**
+ * Highest fret that is generated for every string
+ */
+	public static final int FRETS = 24;
+
+/**
+ * Number of partials summed for every pluck
+ */
+	private static final int PARTIALS = 10;
+
+/**
+ * Inharmonicity coefficient of the partials (typical of steel strings)
+ */
+	private static final double INHARMONICITY = 0.0001;
+
+/**
+ * Where along the string the pluck happens, as a fraction of its length; shapes the partial amplitudes
+ */
+	private static final double PLUCK_POSITION = 0.2;
+
+/**
+ * Amplitude of the broadband noise added to every pluck
+ */
+	private static final double NOISE_LEVEL = 0.01;
+
+/**
+ * The sample rate in hz of every generated signal
+ */
+	private final int sampleRate;
+
+/**
+ * Seed that every generated pluck is derived from, so runs are repeatable
+ */
+	private final long seed;
+
+/**
+ * The table the open string frequencies are taken from
+ */
+	private final NoteTable noteTable;
+
+/**
+ * Constructs a SyntheticGuitar at concert pitch
+ * @param sampleRate The sample rate in hz of the generated signals
+ * @param seed The seed every pluck's noise is derived from
+ */
+	public SyntheticGuitar(int sampleRate, long seed) {
+		this.sampleRate = sampleRate;
+		this.seed = seed;
+		noteTable = new NoteTable();
+	}
+
+/**
+ * Finds the true fundamental of a fretted note
+ * @param string The string number, 0 for low E through 5 for high E
+ * @param fret The fret number, 0 for the open string
+ * @return The fundamental frequency in hz
+ */
+	public double frequency(int string, int fret) {
+		return noteTable.getFrequency(NoteTable.STANDARD_TUNING[string]) * Math.pow(2.0, fret / 12.0);
+	}
+
+/**
+ * Generates one pluck of the given string and fret. The same string, fret and seed always produce the same signal.
+ * @param string The string number, 0 for low E through 5 for high E
+ * @param fret The fret number, 0 for the open string
+ * @param seconds The length of the signal
+ * @return The generated samples, normalised to a peak of about 0.8
+ */
+	public float[] pluck(int string, int fret, double seconds) {
+		double f0 = frequency(string, fret);
+		Random random = new Random(seed ^ (string * 1000L + fret));
+		int length = (int) (seconds * sampleRate);
+		float[] signal = new float[length];
+		double nyquist = sampleRate / 2.0;
+		// low strings ring longer than high strings
+		double baseDecay = 1.0 + f0 / 200.0;
+
+		for(int k = 1; k <= PARTIALS; k++) {
+			double partial = k * f0 * Math.sqrt(1 + INHARMONICITY * k * k);
+			if(partial >= nyquist) {
+				break;
+			}
+			double amplitude = Math.abs(Math.sin(Math.PI * k * PLUCK_POSITION)) / k;
+			double decay = baseDecay * (1 + 0.3 * k);
+			double phase = random.nextDouble() * 2 * Math.PI;
+			double step = 2 * Math.PI * partial / sampleRate;
+			for(int i = 0; i < length; i++) {
+				double t = (double) i / sampleRate;
+				signal[i] += amplitude * Math.exp(-decay * t) * Math.sin(phase + step * i);
+			}
+		}
+
+		float peak = 0;
+		for(int i = 0; i < length; i++) {
+			signal[i] += NOISE_LEVEL * random.nextGaussian();
+			peak = Math.max(peak, Math.abs(signal[i]));
+		}
+		if(peak > 0) {
+			float gain = 0.8f / peak;
+			for(int i = 0; i < length; i++) {
+				signal[i] *= gain;
+			}
+		}
+		return signal;
+	}
+
+/**
+ * Basic get method for the int sampleRate
+ * @return The sample rate in hz of every generated signal
+ */
+	public int getSampleRate() {
+		return sampleRate;
+	}
+}
@@ -0,0 +1,377 @@
+package client;
+
+import be.tarsos.dsp.AudioEvent;
+import be.tarsos.dsp.AudioProcessor;
+import be.tarsos.dsp.pitch.PitchDetectionHandler;
+import be.tarsos.dsp.pitch.PitchDetectionResult;
+
+/**
+ * This class acts as a pitch processor whose analysis window follows the note being played. A low E needs a long
+ * window to fit two of its periods, but a note at the top of the neck fits in an eighth of that, and a shorter window
+ * both reacts sooner and can be analysed more often. The dispatcher delivers short buffers (see
+ * CaptureProfile.ADAPTIVE); their new samples are collected in a history, and every quarter window a window of the
+ * current register's size is copied out of it and analysed with that register's own BlockedYin. Every register's
+ * window and detector are allocated once, so switching between them never allocates. A note onset or a lost pitch
+ * switches straight to the longest window, so a low note is never analysed with a window too short to hold it; once a
+ * pitch is found the window shrinks to the shortest one that fits it. A note that starts after a gap in the timestamps
+ * (the NoiseGate dropping the quiet buffers between notes) is handled the other way round: its history starts empty,
+ * it is first analysed as soon as the shortest window has filled, and the window grows until the pitch found fits in
+ * it, so a high note is reported after 512 samples instead of 4096. Results that do not fit are not passed on. Besides
+ * the steady-state latency of each register, the time from every onset to its first confident result is measured,
+ * grouped by the register of the note.
+ * @author Jonathan Novins
+ * @version 1.0
+ */
+public class AdaptiveWindowProcessor implements AudioProcessor {
+
+/**
+ * The window size classes, from longest to shortest
+ */
+	public enum Register {
+		/**
+		 * Low E to about A2
+		 */
+		LOW(4096),
+		/**
+		 * About A2 to A3
+		 */
+		MID(2048),
+		/**
+		 * About A3 to F4
+		 */
+		HIGH(1024),
+		/**
+		 * About F4 and above
+		 */
+		TOP(512);
+
+		/**
+		 * Number of samples in this register's analysis window
+		 */
+		final int windowSize;
+
+		Register(int windowSize) {
+			this.windowSize = windowSize;
+		}
+
+		/**
+		 * Basic get method for the int windowSize
+		 * @return Number of samples in this register's analysis window
+		 */
+		public int getWindowSize() {
+			return windowSize;
+		}
+	}
+
+/**
+ * Every register, indexed by ordinal
+ */
+	private static final Register[] REGISTERS = Register.values();
+
+/**
+ * Number of periods of the detected pitch that must fit in half a window (YIN's longest lag)
+ */
+	private static final double PERIODS_PER_HALF_WINDOW = 2;
+
+/**
+ * Consecutive analyses that must call for a shorter window before it is used
+ */
+	private static final int SHRINK_FRAMES = 2;
+
+/**
+ * Detected pitches with a lower probability than this do not move the window
+ */
+	private static final float MIN_PROBABILITY = 0.9f;
+
+/**
+ * A buffer this many times louder than the recent level is treated as a new note
+ */
+	private static final double ONSET_RATIO = 2;
+
+/**
+ * The sample rate in hz of the incoming audio
+ */
+	private final float sampleRate;
+
+/**
+ * The handler every result is passed to
+ */
+	private final PitchDetectionHandler handler;
+
+/**
+ * Circular history of the most recent samples, as long as the longest window
+ */
+	private final float[] history = new float[REGISTERS[0].windowSize];
+
+/**
+ * One pooled analysis window per register
+ */
+	private final float[][] windows = new float[REGISTERS.length][];
+
+/**
+ * One detector per register
+ */
+	private final BlockedYin[] detectors = new BlockedYin[REGISTERS.length];
+
+/**
+ * Number of analyses, samples between analyses and nanoseconds spent analysing, per register
+ */
+	private final long[] frames = new long[REGISTERS.length], intervalSamples = new long[REGISTERS.length],
+			computeNanos = new long[REGISTERS.length];
+
+/**
+ * Number of onsets that reached a confident result, and the total time they took in milliseconds, per register of
+ * the detected note
+ */
+	private final long[] onsets = new long[REGISTERS.length];
+	private final double[] onsetMillis = new double[REGISTERS.length];
+
+/**
+ * Stream position in samples of the buffer that started the current note, or Long.MIN_VALUE once its first
+ * confident result has been measured
+ */
+	private long onsetPosition = Long.MIN_VALUE;
+
+/**
+ * Index in history where the next sample will be written
+ */
+	private int writeIndex;
+
+/**
+ * Number of valid samples in history, up to its length
+ */
+	private int filled;
+
+/**
+ * Number of samples received since the last analysis
+ */
+	private int sinceAnalysis;
+
+/**
+ * Stream position of the previous buffer in samples, or Long.MIN_VALUE before the first
+ */
+	private long lastPosition = Long.MIN_VALUE;
+
+/**
+ * Running RMS level of the recent buffers, used to spot onsets
+ */
+	private double level;
+
+/**
+ * The register currently being analysed
+ */
+	private int current;
+
+/**
+ * Set while a note that started after a gap is analysed with growing windows
+ */
+	private boolean growing;
+
+/**
+ * The shorter register the last analyses called for, and how many in a row did
+ */
+	private int shrinkTarget, shrinkCount;
+
+/**
+ * Constructs an AdaptiveWindowProcessor, allocating every register's window and detector up front
+ * @param sampleRate The sample rate in hz of the incoming audio
+ * @param handler Receives the result of every analysis
+ */
+	public AdaptiveWindowProcessor(float sampleRate, PitchDetectionHandler handler) {
+		this.sampleRate = sampleRate;
+		this.handler = handler;
+		for(int r = 0; r < REGISTERS.length; r++) {
+			windows[r] = new float[REGISTERS[r].windowSize];
+			detectors[r] = new BlockedYin(sampleRate, REGISTERS[r].windowSize);
+		}
+	}
+
+/**
+ * Adds the buffer's new samples to the history and analyses the current register's window once a quarter of it has
+ * arrived since the last analysis
+ */
+	@Override
+	public boolean process(AudioEvent audioEvent) {
+		float[] buffer = audioEvent.getFloatBuffer();
+		long position = Math.round(audioEvent.getTimeStamp() * sampleRate);
+		long hop = position - lastPosition;
+		lastPosition = position;
+		int fresh = (int) Math.min(buffer.length, hop);
+		if(hop <= 0 || hop > buffer.length) {
+			// first buffer, or buffers were gated out between notes. The history no longer joins up with this buffer,
+			// and even when quiet the previous note's tail would be found in a window mostly made of it
+			fresh = buffer.length;
+			filled = 0;
+			sinceAnalysis = 0;
+			current = REGISTERS.length - 1;
+			growing = true;
+			shrinkCount = 0;
+			onsetPosition = position;
+			level = 0; // measured afresh, so the rising level of the new note is not taken for another onset
+		}
+
+		double energy = 0;
+		for(int i = buffer.length - fresh; i < buffer.length; i++) {
+			float sample = buffer[i];
+			history[writeIndex] = sample;
+			writeIndex = (writeIndex + 1) % history.length;
+			energy += sample * sample;
+		}
+		filled = Math.min(history.length, filled + fresh);
+		sinceAnalysis += fresh;
+		double rms = Math.sqrt(energy / Math.max(1, fresh));
+		if(!growing && rms > ONSET_RATIO * level && level > 0) {
+			current = 0; // a new note may be lower than the window can hold
+			shrinkCount = 0;
+			if(onsetPosition == Long.MIN_VALUE) {
+				onsetPosition = position;
+			}
+		}
+		level = level == 0 ? rms : 0.8 * level + 0.2 * rms;
+
+		int windowSize = REGISTERS[current].windowSize;
+		if(filled < windowSize || (!growing && sinceAnalysis < windowSize / 4)) {
+			return true;
+		}
+
+		float[] window = windows[current];
+		int start = (writeIndex - windowSize + history.length) % history.length;
+		int tail = Math.min(windowSize, history.length - start);
+		System.arraycopy(history, start, window, 0, tail);
+		System.arraycopy(history, 0, window, tail, windowSize - tail);
+
+		long began = System.nanoTime();
+		PitchDetectionResult result = detectors[current].getPitch(window);
+		long spent = System.nanoTime() - began;
+		computeNanos[current] += spent;
+		frames[current]++;
+		intervalSamples[current] += sinceAnalysis;
+		sinceAnalysis = 0;
+		if(growing) {
+			if(!isConfident(result) || registerFor(result.getPitch()) < current) {
+				current--; // nothing found, or a pitch too low for this window to hold: try the next longer one
+				growing = current > 0;
+				return true;
+			}
+			growing = false;
+		}
+		if(onsetPosition != Long.MIN_VALUE && isConfident(result)) {
+			int note = registerFor(result.getPitch());
+			onsets[note]++;
+			onsetMillis[note] += (position + buffer.length - onsetPosition) * 1000.0 / sampleRate + spent / 1e6;
+			onsetPosition = Long.MIN_VALUE;
+		}
+
+		handler.handlePitch(result, audioEvent);
+		choose(result);
+		return true;
+	}
+
+/**
+ * Picks the register for the next analysis: the longest straight away if the pitch was lost, a longer one straight
+ * away if the pitch needs it, and a shorter one once SHRINK_FRAMES analyses in a row have called for it
+ */
+	private void choose(PitchDetectionResult result) {
+		if(!isConfident(result)) {
+			current = 0;
+			shrinkCount = 0;
+			return;
+		}
+		int target = registerFor(result.getPitch());
+		if(target <= current) {
+			current = target;
+			shrinkCount = 0;
+			return;
+		}
+		if(target != shrinkTarget) {
+			shrinkTarget = target;
+			shrinkCount = 0;
+		}
+		if(++shrinkCount >= SHRINK_FRAMES) {
+			current = target;
+			shrinkCount = 0;
+		}
+	}
+
+/**
+ * Finds whether a result is pitched with enough probability to move the window
+ */
+	private static boolean isConfident(PitchDetectionResult result) {
+		return result.isPitched() && result.getPitch() > 0 && result.getProbability() >= MIN_PROBABILITY;
+	}
+
+/**
+ * Finds the shortest register whose half window fits PERIODS_PER_HALF_WINDOW periods of the received pitch
+ * @return The index of the register
+ */
+	private int registerFor(float pitch) {
+		double needed = PERIODS_PER_HALF_WINDOW * sampleRate / pitch;
+		for(int r = REGISTERS.length - 1; r > 0; r--) {
+			if(REGISTERS[r].windowSize / 2 >= needed) {
+				return r;
+			}
+		}
+		return 0;
+	}
+
+/**
+ * Standard AudioProcessor method; nothing needs to be released
+ */
+	@Override
+	public void processingFinished() {
+	}
+
+/**
+ * Basic get method for the current Register
+ * @return The register the next analysis will use
+ */
+	public Register getRegister() {
+		return REGISTERS[current];
+	}
+
+/**
+ * Finds the average steady-state delay between a change in a held note and its result in one register: half a window
+ * for the change to dominate the analysis, the measured time between analyses and the time spent analysing. A new
+ * note takes longer, since it always starts in the longest register; see getOnsetLatencyMillis().
+ * @param register The register to measure
+ * @return The latency in milliseconds, or NaN if the register was never used
+ */
+	public double getLatencyMillis(Register register) {
+		int r = register.ordinal();
+		long count = frames[r];
+		if(count == 0) {
+			return Double.NaN;
+		}
+		return register.windowSize * 500.0 / sampleRate + intervalSamples[r] * 1000.0 / sampleRate / count
+				+ computeNanos[r] / 1e6 / count;
+	}
+
+/**
+ * Finds the average time from a note's onset to its first confident result, for notes in one register. Measured from
+ * the start of the buffer the onset was found in to the end of the buffer that completed the analysis, plus the time
+ * spent analysing.
+ * @param register The register of the detected notes
+ * @return The latency in milliseconds, or NaN if no note in the register was detected
+ */
+	public double getOnsetLatencyMillis(Register register) {
+		int r = register.ordinal();
+		return onsets[r] == 0 ? Double.NaN : onsetMillis[r] / onsets[r];
+	}
+
+/**
+ * Builds a one-line summary of how often each register was used and its latency
+ * @return A String suitable for printing to the console
+ */
+	public String report() {
+		StringBuilder report = new StringBuilder("***ADAPTIVE WINDOW:");
+		for(int r = 0; r < REGISTERS.length; r++) {
+			Register register = REGISTERS[r];
+			long count = frames[r];
+			report.append(String.format(" %s %d samples, %d analyses, %.1f ms latency, %.0f us each, %d onsets %.1f ms to first "
+					+ "pitch%s", register, register.windowSize, count, getLatencyMillis(register),
+					count == 0 ? 0 : computeNanos[r] / 1e3 / count, onsets[r], getOnsetLatencyMillis(register),
+					r < REGISTERS.length - 1 ? " |" : ""));
+		}
+		return report.append("***").toString();
+	}
+}
@@ -0,0 +1,259 @@
+package client;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class acts as an asynchronous front for DBConnect, so the JavaFX thread never waits on the database. Every
+ * method returns a CompletableFuture straight away and runs the query on a small executor of its own: virtual threads
+ * when the JVM has them (Java 21 and later), otherwise a fixed pool as large as the connection pool, since more
+ * threads than connections would only queue in borrow(). Every read has a timeout, after which its future fails with
+ * a TimeoutException and the query's thread is interrupted; createAccount() has none, since an INSERT that commits
+ * after its future had failed would report an error for an account that exists. Results complete on the executor's
+ * threads, so user interface code should hand them to Platform.runLater(). Constructing one starts DBConnect.warmUp()
+ * in the background and returns at once; ready() completes when the first connection is open, or fails if the
+ * database cannot be reached. Calls do not wait for it, since each borrows (and if need be opens) a connection of its
+ * own.
+ * @author Jonathan Novins
+ * @version 1.0
+ */
+public class AsyncDBConnect implements AutoCloseable {
+
+/**
+ * A database call that may throw SQLException
+ * @param <T> The type of the call's result
+ */
+	public interface SqlCall<T> {
+		/**
+		 * Runs the call
+		 * @return The result
+		 * @throws SQLException if the database reports an error
+		 */
+		T call() throws SQLException;
+	}
+
+/**
+ * How long a call may take when no timeout is given, in milliseconds
+ */
+	public static final long DEFAULT_TIMEOUT_MILLIS = 5000;
+
+/**
+ * The synchronous DBConnect every call is delegated to
+ */
+	private final DBConnect db;
+
+/**
+ * Runs the calls
+ */
+	private final ExecutorService executor;
+
+/**
+ * Fails calls that run past their timeout
+ */
+	private final ScheduledExecutorService timer;
+
+/**
+ * Whether executor runs on virtual threads
+ */
+	private final boolean virtual;
+
+/**
+ * Completes when the background warm-up has opened the first connection
+ */
+	private final CompletableFuture<Void> ready = new CompletableFuture<Void>();
+
+/**
+ * When the background warm-up was started, from System.nanoTime()
+ */
+	private final long warmUpStartNanos;
+
+/**
+ * Constructs an AsyncDBConnect
+ * @param db The DBConnect every call is delegated to; its pool bounds how many calls really run at once
+ */
+	public AsyncDBConnect(DBConnect db) {
+		this.db = db;
+		ExecutorService virtualExecutor = newVirtualThreadExecutor();
+		virtual = virtualExecutor != null;
+		if(virtual) {
+			executor = virtualExecutor;
+		}
+		else {
+			AtomicInteger count = new AtomicInteger();
+			executor = Executors.newFixedThreadPool(db.getPool().getMaxSize(), runnable -> {
+				Thread thread = new Thread(runnable, "db-async-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "db-async-timeout");
+			thread.setDaemon(true);
+			return thread;
+		});
+		warmUpStartNanos = System.nanoTime();
+		executor.execute(() -> {
+			try {
+				db.warmUp();
+				System.out.println(String.format("***DATABASE READY AFTER %.1f ms***", (System.nanoTime() - warmUpStartNanos) / 1e6));
+				ready.complete(null);
+			}
+			catch(SQLException | RuntimeException e) {
+				System.out.println(String.format("***DATABASE UNAVAILABLE AFTER %.1f ms***",
+						(System.nanoTime() - warmUpStartNanos) / 1e6));
+				ready.completeExceptionally(e);
+			}
+		});
+	}
+
+/**
+ * Basic get method for the readiness future
+ * @return Completes once the first database connection is open, or exceptionally if it could not be opened
+ */
+	public CompletableFuture<Void> ready() {
+		return ready;
+	}
+
+/**
+ * Basic get method for the long warmUpStartNanos
+ * @return When the background warm-up was started, from System.nanoTime()
+ */
+	public long getWarmUpStartNanos() {
+		return warmUpStartNanos;
+	}
+
+/**
+ * Finds whether the background warm-up has opened the first connection
+ * @return true once the database has been reached
+ */
+	public boolean isReady() {
+		return ready.isDone() && !ready.isCompletedExceptionally();
+	}
+
+/**
+ * Looks up Executors.newVirtualThreadPerTaskExecutor() by reflection, since this code is compiled for Java 8
+ * @return The executor, or null if the running JVM has no virtual threads
+ */
+	private static ExecutorService newVirtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch(ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+/**
+ * Asynchronous version of DBConnect.isTaken() with the default timeout
+ * @param username The username to look for
+ * @return Completes with true if the username is taken
+ */
+	public CompletableFuture<Boolean> isTaken(String username) {
+		return isTaken(username, DEFAULT_TIMEOUT_MILLIS);
+	}
+
+/**
+ * Asynchronous version of DBConnect.isTaken()
+ * @param username The username to look for
+ * @param timeoutMillis How long the call may take
+ * @return Completes with true if the username is taken
+ */
+	public CompletableFuture<Boolean> isTaken(String username, long timeoutMillis) {
+		return submit(() -> db.isTaken(username), timeoutMillis);
+	}
+
+/**
+ * Asynchronous version of DBConnect.createAccount(). It has no timeout: its future only completes once the INSERT
+ * has committed or failed, so it never reports an error for an account that was created. It is still bounded by the
+ * pool's borrow timeout.
+ * @param username The username of the new account
+ * @param password The password of the new account
+ * @return Completes once the account has been created
+ */
+	public CompletableFuture<Void> createAccount(String username, String password) {
+		CompletableFuture<Void> result = new CompletableFuture<Void>();
+		executor.execute(() -> run(() -> {
+			db.createAccount(username, password);
+			return null;
+		}, result));
+		return result;
+	}
+
+/**
+ * Asynchronous version of DBConnect.login() with the default timeout
+ * @param username The name of the account
+ * @param password The password to check
+ * @return Completes with true if the login succeeded
+ */
+	public CompletableFuture<Boolean> login(String username, String password) {
+		return login(username, password, DEFAULT_TIMEOUT_MILLIS);
+	}
+
+/**
+ * Asynchronous version of DBConnect.login(). Like it, this only checks the password; recording who is logged in is
+ * left to the caller, once it knows the call succeeded in time.
+ * @param username The name of the account
+ * @param password The password to check
+ * @param timeoutMillis How long the call may take
+ * @return Completes with true if the login succeeded
+ */
+	public CompletableFuture<Boolean> login(String username, String password, long timeoutMillis) {
+		return submit(() -> db.login(username, password), timeoutMillis);
+	}
+
+/**
+ * Runs any database call on the executor with a timeout
+ * @param call The call to run
+ * @param timeoutMillis How long the call may take before its future fails with a TimeoutException
+ * @param <T> The type of the call's result
+ * @return Completes with the call's result, or exceptionally with its SQLException or the TimeoutException
+ */
+	public <T> CompletableFuture<T> submit(SqlCall<T> call, long timeoutMillis) {
+		CompletableFuture<T> result = new CompletableFuture<T>();
+		Future<?> task = executor.submit(() -> run(call, result));
+		ScheduledFuture<?> timeout = timer.schedule(() -> {
+			if(result.completeExceptionally(new TimeoutException("Database call took longer than " + timeoutMillis + " ms"))) {
+				task.cancel(true);
+			}
+		}, timeoutMillis, TimeUnit.MILLISECONDS);
+		result.whenComplete((value, error) -> timeout.cancel(false));
+		return result;
+	}
+
+/**
+ * Runs a call on the current thread and completes its future with the outcome
+ */
+	private static <T> void run(SqlCall<T> call, CompletableFuture<T> result) {
+		try {
+			result.complete(call.call());
+		}
+		catch(SQLException | RuntimeException e) {
+			result.completeExceptionally(e);
+		}
+	}
+
+/**
+ * Basic get method for the boolean virtual
+ * @return Whether calls run on virtual threads
+ */
+	public boolean isVirtual() {
+		return virtual;
+	}
+
+/**
+ * Stops accepting calls; calls already submitted still run
+ */
+	@Override
+	public void close() {
+		executor.shutdown();
+		timer.shutdown();
+	}
+}
@@ -0,0 +1,300 @@
+package client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.Mixer;
+import javax.sound.sampled.TargetDataLine;
+import be.tarsos.dsp.io.TarsosDSPAudioFormat;
+import be.tarsos.dsp.io.TarsosDSPAudioInputStream;
+import be.tarsos.dsp.io.jvm.JVMAudioInputStream;
+
+/**
+ * This class finds and opens the recording device. Every mixer that can capture the profile's format is listed once
+ * and cached. The first time a line is needed each of them is opened with the smallest buffer that still holds two
+ * hops, and the one whose driver actually granted the smallest buffer (the lowest latency) is kept; a device named
+ * with setPreferredName() is used instead whenever it is present. As a CaptureRing.Reconnector it also replaces a
+ * lost line: the same device is tried first, and if it has gone the device list is rebuilt and the best remaining
+ * device is opened, all without touching the dispatcher reading from the ring.
+ * @author Jonathan Novins
+ * @version 1.0
+ */
+public class AudioDeviceManager implements CaptureRing.Reconnector {
+
+/**
+ * One mixer that can capture the requested format
+ */
+	public static class Device {
+		private final Mixer.Info mixerInfo;
+		private final DataLine.Info lineInfo;
+		private volatile int bufferBytes = -1;
+
+		Device(Mixer.Info mixerInfo, DataLine.Info lineInfo) {
+			this.mixerInfo = mixerInfo;
+			this.lineInfo = lineInfo;
+		}
+
+		/**
+		 * Basic get method for the name of the mixer
+		 * @return The name the operating system gives the device
+		 */
+		public String getName() {
+			return mixerInfo.getName();
+		}
+
+		/**
+		 * Basic get method for the int bufferBytes
+		 * @return The buffer size the driver granted when the device was last opened, or -1 if it never was
+		 */
+		public int getBufferBytes() {
+			return bufferBytes;
+		}
+	}
+
+/**
+ * The format every line is opened with
+ */
+	private final AudioFormat format;
+
+/**
+ * The line buffer size asked for; drivers may grant a larger one
+ */
+	private final int requestedBufferBytes;
+
+/**
+ * Every device that can capture the format, listed when first needed and again when a device is lost
+ */
+	private List<Device> devices;
+
+/**
+ * Part of the name of the device to use whenever it is present, or null to pick by latency
+ */
+	private volatile String preferredName;
+
+/**
+ * The device currently open, or null
+ */
+	private volatile Device active;
+
+/**
+ * The line currently open, or null
+ */
+	private TargetDataLine line;
+
+/**
+ * Number of times a lost line was replaced
+ */
+	private volatile long reconnects;
+
+/**
+ * Constructs an AudioDeviceManager for a capture profile; no device is touched until open() is called
+ * @param profile The profile whose sample rate and hop size the line must suit
+ */
+	public AudioDeviceManager(CaptureProfile profile) {
+		format = new AudioFormat(profile.getSampleRate(), 16, 1, true, true);
+		requestedBufferBytes = 2 * profile.getHopSize() * format.getFrameSize();
+	}
+
+/**
+ * Sets the device to use whenever it is present, instead of the one with the lowest latency
+ * @param preferredName Part of the device's name, ignoring case; null or empty to pick by latency
+ */
+	public void setPreferredName(String preferredName) {
+		this.preferredName = preferredName == null || preferredName.trim().isEmpty() ? null : preferredName.trim();
+	}
+
+/**
+ * Lists every device that can capture the format, enumerating them the first time this is called
+ * @return An unmodifiable list of the devices
+ */
+	public synchronized List<Device> getDevices() {
+		if(devices == null) {
+			refresh();
+		}
+		return Collections.unmodifiableList(devices);
+	}
+
+/**
+ * Enumerates the devices again, for when one has been plugged in or removed
+ */
+	public synchronized void refresh() {
+		List<Device> found = new ArrayList<Device>();
+		DataLine.Info wanted = new DataLine.Info(TargetDataLine.class, format);
+		for(Mixer.Info info : AudioSystem.getMixerInfo()) {
+			Mixer mixer = AudioSystem.getMixer(info);
+			if(mixer.isLineSupported(wanted)) {
+				found.add(new Device(info, wanted));
+			}
+		}
+		devices = found;
+	}
+
+/**
+ * Opens the preferred device if it is present, otherwise the device granting the smallest buffer, and starts it
+ * @return The started line as a stream a CaptureRing can read
+ * @throws LineUnavailableException if no device could be opened
+ */
+	public synchronized TarsosDSPAudioInputStream open() throws LineUnavailableException {
+		closeLine();
+		List<Device> candidates = getDevices();
+		String preferred = preferredName;
+		if(preferred != null) {
+			for(Device device : candidates) {
+				if(device.getName().toLowerCase(Locale.ROOT).contains(preferred.toLowerCase(Locale.ROOT))) {
+					try {
+						return start(device, openLine(device));
+					}
+					catch(LineUnavailableException | IllegalArgumentException e) {
+						System.out.println("***AUDIO DEVICE \"" + device.getName() + "\" UNAVAILABLE: " + e.getMessage() + "***");
+					}
+				}
+			}
+		}
+
+		Device best = null;
+		TargetDataLine bestLine = null;
+		String failure = null;
+		for(Device device : candidates) {
+			try {
+				TargetDataLine candidate = openLine(device);
+				if(bestLine == null || device.bufferBytes < best.bufferBytes) { // ties keep the earlier, default device
+					if(bestLine != null) {
+						bestLine.close();
+					}
+					best = device;
+					bestLine = candidate;
+				}
+				else {
+					candidate.close();
+				}
+			}
+			catch(LineUnavailableException | IllegalArgumentException e) { // busy, or removed since it was listed
+				failure = e.getMessage();
+			}
+		}
+		if(bestLine == null) {
+			throw new LineUnavailableException(failure != null ? failure : "No recording device supports " + format);
+		}
+		return start(best, bestLine);
+	}
+
+/**
+ * Replaces a lost line. The device that was in use is tried first; if it cannot be opened the device list is rebuilt
+ * and open() picks again.
+ */
+	@Override
+	public synchronized TarsosDSPAudioInputStream reconnect() throws IOException {
+		Device previous = active;
+		closeLine();
+		try {
+			TarsosDSPAudioInputStream stream = null;
+			if(previous != null && preferredName == null) {
+				try {
+					stream = start(previous, openLine(previous));
+				}
+				catch(LineUnavailableException | IllegalArgumentException e) {
+					stream = null;
+				}
+			}
+			if(stream == null) {
+				refresh();
+				stream = open();
+			}
+			if(previous != null) { // the first line of a ring started without a device is not a reconnect
+				reconnects++;
+			}
+			return stream;
+		}
+		catch(LineUnavailableException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+
+/**
+ * Opens a device's line without starting it and records the buffer size the driver granted
+ */
+	private TargetDataLine openLine(Device device) throws LineUnavailableException {
+		TargetDataLine opened = (TargetDataLine) AudioSystem.getMixer(device.mixerInfo).getLine(device.lineInfo);
+		opened.open(format, requestedBufferBytes);
+		device.bufferBytes = opened.getBufferSize();
+		return opened;
+	}
+
+/**
+ * Starts an opened line and makes it the active one
+ */
+	private TarsosDSPAudioInputStream start(Device device, TargetDataLine opened) {
+		opened.start();
+		line = opened;
+		active = device;
+		return new JVMAudioInputStream(new AudioInputStream(opened));
+	}
+
+/**
+ * Stops and closes the active line, if any
+ */
+	private void closeLine() {
+		if(line != null) {
+			line.stop();
+			line.close();
+			line = null;
+		}
+	}
+
+/**
+ * Closes the active line
+ */
+	public synchronized void close() {
+		closeLine();
+		active = null;
+	}
+
+/**
+ * Finds the format every line is opened with, as a CaptureRing started without a line needs it
+ * @return The format of the lines this manager opens
+ */
+	public TarsosDSPAudioFormat getFormat() {
+		return JVMAudioInputStream.toTarsosDSPFormat(format);
+	}
+
+/**
+ * Finds how much audio the active line can buffer
+ * @return The line buffer duration in milliseconds, or NaN if no line is open
+ */
+	public double getLineLatencyMillis() {
+		Device device = active;
+		if(device == null || device.bufferBytes < 0) {
+			return Double.NaN;
+		}
+		return device.bufferBytes * 1000.0 / format.getFrameSize() / format.getSampleRate();
+	}
+
+/**
+ * Basic get method for the active Device
+ * @return The device currently open, or null
+ */
+	public Device getActive() {
+		return active;
+	}
+
+/**
+ * Builds a one-line summary of the devices found and the one in use
+ * @return A String suitable for printing to the console
+ */
+	public String report() {
+		Device device = active;
+		StringBuilder names = new StringBuilder();
+		for(Device each : getDevices()) {
+			names.append(names.length() == 0 ? "" : ", ").append(each.getName());
+		}
+		return String.format("***AUDIO DEVICES: [%s], using %s with a %.1f ms line buffer, %d reconnects***", names,
+				device == null ? "none" : "\"" + device.getName() + "\"", getLineLatencyMillis(), reconnects);
+	}
+}
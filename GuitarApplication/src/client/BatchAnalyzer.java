@@ -0,0 +1,312 @@
+package client;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import be.tarsos.dsp.AudioDispatcher;
+import be.tarsos.dsp.AudioEvent;
+import be.tarsos.dsp.io.jvm.AudioDispatcherFactory;
+import be.tarsos.dsp.pitch.PitchDetectionHandler;
+import be.tarsos.dsp.pitch.PitchDetectionResult;
+import be.tarsos.dsp.pitch.PitchProcessor;
+import be.tarsos.dsp.pitch.PitchProcessor.PitchEstimationAlgorithm;
+
+/**
+ * This class runs the tuner's pitch pipeline (capture profile window, noise gate, YIN and NoteTable lookup) over
+ * recorded practice files instead of the live microphone. Every .wav, .pcm or .raw file in a directory is analysed on
+ * a fork-join pool with one dispatcher per file, and a CSV of per-frame pitch, nearest note and cents is written for
+ * each one. Files share nothing while they are analysed, so throughput grows with the number of cores. Run with:
+ * <pre>java client.BatchAnalyzer &lt;input dir&gt; [output dir] [--profile=standard] [--a4=440] [--threads=n] [--raw-rate=44100]</pre>
+ * Raw files are read as mono 16-bit signed little-endian PCM at --raw-rate. PCM files are memory-mapped, so even
+ * multi-hour recordings use a constant amount of heap, and mixed down to mono. WAV files in other encodings must be
+ * mono.
+ * @author Jonathan Novins
+ * @version 1.0
+ */
+public class BatchAnalyzer {
+
+/**
+ * The capture profile whose window and overlap every file is analysed with
+ */
+	private final CaptureProfile profile;
+
+/**
+ * The table every nearest-note and cents lookup is served from; read-only, so it is shared by every file
+ */
+	private final NoteTable noteTable;
+
+/**
+ * Sample rate assumed for raw PCM files, which carry no header
+ */
+	private final float rawSampleRate;
+
+/**
+ * Total number of frames written across every file
+ */
+	private final AtomicLong framesWritten = new AtomicLong();
+
+/**
+ * Total number of seconds of audio analysed across every file, in milliseconds
+ */
+	private final AtomicLong audioMillis = new AtomicLong();
+
+/**
+ * Constructs a BatchAnalyzer
+ * @param profile The capture profile whose window and overlap every file should be analysed with
+ * @param noteTable The table used for nearest-note and cents lookups
+ * @param rawSampleRate The sample rate to assume for headerless raw PCM files
+ */
+	public BatchAnalyzer(CaptureProfile profile, NoteTable noteTable, float rawSampleRate) {
+		this.profile = profile;
+		this.noteTable = noteTable;
+		this.rawSampleRate = rawSampleRate;
+	}
+
+/**
+ * Analyses every recording in a directory and prints a throughput summary
+ * @param args The input directory, an optional output directory and any of the options listed in the class comment
+ * @throws InterruptedException if interrupted while waiting for the pool to finish
+ */
+	public static void main(String[] args) throws InterruptedException {
+		File inputDir = null;
+		File outputDir = null;
+		CaptureProfile profile = CaptureProfile.STANDARD;
+		double referencePitch = 440;
+		int threads = Runtime.getRuntime().availableProcessors();
+		float rawRate = 44100;
+
+		for(String arg : args) {
+			if(arg.startsWith("--profile=")) {
+				profile = CaptureProfile.fromName(arg.substring(10));
+			}
+			else if(arg.startsWith("--a4=")) {
+				referencePitch = Double.parseDouble(arg.substring(5));
+			}
+			else if(arg.startsWith("--threads=")) {
+				threads = Integer.parseInt(arg.substring(10));
+			}
+			else if(arg.startsWith("--raw-rate=")) {
+				rawRate = Float.parseFloat(arg.substring(11));
+			}
+			else if(inputDir == null) {
+				inputDir = new File(arg);
+			}
+			else {
+				outputDir = new File(arg);
+			}
+		}
+		if(inputDir == null || !inputDir.isDirectory()) {
+			System.out.println("usage: java client.BatchAnalyzer <input dir> [output dir] [--profile=standard] [--a4=440] [--threads=n] [--raw-rate=44100]");
+			return;
+		}
+		if(outputDir == null) {
+			outputDir = inputDir;
+		}
+		if(!outputDir.isDirectory() && !outputDir.mkdirs()) {
+			System.out.println("***COULD NOT CREATE OUTPUT DIRECTORY " + outputDir + "***");
+			return;
+		}
+
+		BatchAnalyzer analyzer = new BatchAnalyzer(profile, new NoteTable(referencePitch), rawRate);
+		analyzer.analyzeDirectory(inputDir, outputDir, threads);
+	}
+
+/**
+ * Analyses every recording in a directory in parallel, writing one CSV per recording
+ * @param inputDir The directory holding the recordings
+ * @param outputDir The directory the CSV files should be written to
+ * @param threads The number of files to analyse at once
+ * @throws InterruptedException if interrupted while waiting for the pool to finish
+ */
+	public void analyzeDirectory(File inputDir, File outputDir, int threads) throws InterruptedException {
+		File[] recordings = inputDir.listFiles((dir, name) -> isRecording(name));
+		if(recordings == null || recordings.length == 0) {
+			System.out.println("***NO .wav, .pcm OR .raw FILES FOUND IN " + inputDir + "***");
+			return;
+		}
+
+		List<FileTask> tasks = new ArrayList<FileTask>();
+		for(File recording : recordings) {
+			tasks.add(new FileTask(recording, new File(outputDir, baseName(recording) + ".csv")));
+		}
+
+		System.out.println("***ANALYSING " + recordings.length + " FILES ON " + threads + " THREADS (" + profile + ")***");
+		long start = System.nanoTime();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			pool.invoke(new RecursiveAction() {
+				@Override
+				protected void compute() {
+					invokeAll(tasks);
+				}
+			});
+		}
+		finally {
+			pool.shutdown();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		int failed = 0;
+		for(FileTask task : tasks) {
+			if(task.failure != null) {
+				failed++;
+			}
+		}
+		double audioSeconds = audioMillis.get() / 1000.0;
+		System.out.println(String.format("***DONE: %d files (%d failed), %d frames, %.1f s of audio in %.2f s (%.1fx real time)***",
+				recordings.length, failed, framesWritten.get(), audioSeconds, seconds, audioSeconds / seconds));
+	}
+
+/**
+ * Analyses a single recording on the calling thread
+ * @param input The recording to analyse
+ * @param output The CSV file to write; one row per analysed frame
+ * @throws IOException if the recording cannot be read or the CSV cannot be written
+ * @throws UnsupportedAudioFileException if the recording is not in a format Java Sound can decode
+ */
+	public void analyze(File input, File output) throws IOException, UnsupportedAudioFileException {
+		AudioDispatcher dispatcher = openDispatcher(input);
+		float sampleRate = dispatcher.getFormat().getSampleRate();
+
+		try(BufferedWriter writer = new BufferedWriter(new FileWriter(output))) {
+			writer.write("time,frequency,probability,note,cents");
+			writer.newLine();
+			FrameWriter frameWriter = new FrameWriter(writer);
+			dispatcher.addAudioProcessor(new NoiseGate());
+			dispatcher.addAudioProcessor(new PitchProcessor(PitchEstimationAlgorithm.YIN, sampleRate, profile.getBufferSize(),
+					frameWriter));
+			dispatcher.run();
+			framesWritten.addAndGet(frameWriter.frames);
+			audioMillis.addAndGet((long) (dispatcher.secondsProcessed() * 1000));
+		}
+		catch(UncheckedIOException e) {
+			throw e.getCause();
+		}
+		finally {
+			if(!dispatcher.isStopped()) { // run() only stops the dispatcher, closing the recording, when it reaches the end
+				dispatcher.stop();
+			}
+		}
+	}
+
+/**
+ * Builds a dispatcher for a recording. PCM WAV and raw files are read through a MappedPcmInputStream so long
+ * recordings are never copied through stream buffers; WAV files in any other encoding fall back to Java Sound. Java
+ * Sound does not mix channels down, and the dispatcher would read interleaved channels as one signal, so such a file
+ * is only accepted if it is mono.
+ * @throws UnsupportedAudioFileException if the file cannot be decoded, or needs Java Sound and has several channels
+ */
+	private AudioDispatcher openDispatcher(File input) throws IOException, UnsupportedAudioFileException {
+		MappedPcmInputStream stream;
+		if(input.getName().toLowerCase(Locale.ROOT).endsWith(".wav")) {
+			try {
+				stream = MappedPcmInputStream.openWav(input);
+			}
+			catch(UnsupportedAudioFileException e) {
+				AudioFormat format = AudioSystem.getAudioFileFormat(input).getFormat();
+				if(format.getChannels() > 1) {
+					throw new UnsupportedAudioFileException(format.getChannels() + " channels of " + format.getEncoding()
+							+ " audio cannot be mixed down; convert it to PCM or mono first");
+				}
+				return AudioDispatcherFactory.fromFile(input, profile.getBufferSize(), profile.getOverlap());
+			}
+		}
+		else {
+			stream = new MappedPcmInputStream(input, rawSampleRate, 16, 1);
+		}
+		return new AudioDispatcher(stream, profile.getBufferSize(), profile.getOverlap());
+	}
+
+/**
+ * Finds whether a file name looks like a recording this class can analyse
+ */
+	private static boolean isRecording(String name) {
+		String lower = name.toLowerCase(Locale.ROOT);
+		return lower.endsWith(".wav") || lower.endsWith(".pcm") || lower.endsWith(".raw");
+	}
+
+/**
+ * Strips the extension from a file name
+ */
+	private static String baseName(File file) {
+		String name = file.getName();
+		int dot = name.lastIndexOf('.');
+		return dot > 0 ? name.substring(0, dot) : name;
+	}
+
+/**
+ * Pitch handler that writes one CSV row per frame. Frames without a confident pitch are written with an empty note
+ * so that timing gaps in the output only ever come from the noise gate.
+ */
+	private class FrameWriter implements PitchDetectionHandler {
+		private final BufferedWriter writer;
+		private final StringBuilder line = new StringBuilder(64);
+		long frames;
+
+		FrameWriter(BufferedWriter writer) {
+			this.writer = writer;
+		}
+
+		@Override
+		public void handlePitch(PitchDetectionResult result, AudioEvent audioEvent) {
+			line.setLength(0);
+			line.append(audioEvent.getTimeStamp()).append(',');
+			float pitch = result.getPitch();
+			if(pitch > 50 && result.getProbability() > .9) {
+				int index = noteTable.nearestIndex(pitch);
+				line.append(pitch).append(',').append(result.getProbability()).append(',')
+					.append(noteTable.getNoteName(index)).append(noteTable.getOctave(index)).append(',')
+					.append((float) noteTable.cents(pitch, index));
+			}
+			else {
+				line.append(-1).append(',').append(result.getProbability()).append(",,");
+			}
+			try {
+				writer.append(line);
+				writer.newLine();
+			}
+			catch(IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			frames++;
+		}
+	}
+
+/**
+ * Fork-join task that analyses one recording. Failures are recorded and printed rather than thrown, so one bad
+ * file does not stop the rest of the batch.
+ */
+	private class FileTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final File input;
+		private final File output;
+		Exception failure;
+
+		FileTask(File input, File output) {
+			this.input = input;
+			this.output = output;
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				analyze(input, output);
+			}
+			catch(IOException | UnsupportedAudioFileException | RuntimeException e) {
+				failure = e;
+				System.out.println("***FAILED TO ANALYSE " + input.getName() + ": " + e + "***");
+			}
+		}
+	}
+}
@@ -0,0 +1,220 @@
+package client;
+
+import be.tarsos.dsp.pitch.PitchDetectionResult;
+import be.tarsos.dsp.pitch.PitchDetector;
+
+/**
+ * This class acts as a faster implementation of TarsosDSP's YIN pitch detector that produces exactly the same results.
+ * It is named for the lag blocking below, and is unrelated to TarsosDSP's own FastYin (the FFT_YIN estimator).
+ * Two things make it faster. The difference function is computed for four lags at a time, so every sample loaded
+ * from the buffer is used four times and the four sums form independent chains the processor can overlap. And since
+ * YIN's answer only depends on the lags up to the first dip below the threshold, lags are computed on demand and the
+ * rest are never touched, which skips most of the work for anything above the lowest strings. Each lag is still
+ * summed in the same order as TarsosDSP does it, so every value, and therefore every result, is bit-for-bit the same.
+ * @author Jonathan Novins
+ * @version 1.0
+ */
+public class BlockedYin implements PitchDetector {
+
+/**
+ * The threshold TarsosDSP uses by default; the first dip below it is taken as the period
+ */
+	public static final double DEFAULT_THRESHOLD = 0.20;
+
+/**
+ * Number of lags computed together in one pass over the buffer
+ */
+	private static final int LAGS_PER_PASS = 4;
+
+/**
+ * The threshold the normalised difference must fall below
+ */
+	private final double threshold;
+
+/**
+ * The sample rate in hz of the incoming audio
+ */
+	private final float sampleRate;
+
+/**
+ * The cumulative mean normalised difference for every lag computed so far; half the buffer size long
+ */
+	private final float[] yinBuffer;
+
+/**
+ * Reused for every result
+ */
+	private final PitchDetectionResult result = new PitchDetectionResult();
+
+/**
+ * The buffer currently being analysed
+ */
+	private float[] audioBuffer;
+
+/**
+ * Number of lags whose normalised difference is already in yinBuffer
+ */
+	private int computed;
+
+/**
+ * Running sum of the raw differences of every computed lag
+ */
+	private float runningSum;
+
+/**
+ * Constructs a BlockedYin with the default threshold
+ * @param sampleRate The sample rate in hz of the incoming audio
+ * @param bufferSize The size of the buffers that will be analysed
+ */
+	public BlockedYin(float sampleRate, int bufferSize) {
+		this(sampleRate, bufferSize, DEFAULT_THRESHOLD);
+	}
+
+/**
+ * Constructs a BlockedYin
+ * @param sampleRate The sample rate in hz of the incoming audio
+ * @param bufferSize The size of the buffers that will be analysed
+ * @param threshold The threshold the normalised difference must fall below
+ */
+	public BlockedYin(float sampleRate, int bufferSize, double threshold) {
+		this.sampleRate = sampleRate;
+		this.threshold = threshold;
+		yinBuffer = new float[bufferSize / 2];
+	}
+
+/**
+ * Estimates the pitch of a buffer
+ * @param audioBuffer At least twice as many samples as yinBuffer holds
+ * @return The reused result; -1hz and not pitched if no period was found
+ */
+	@Override
+	public PitchDetectionResult getPitch(float[] audioBuffer) {
+		this.audioBuffer = audioBuffer;
+		yinBuffer[0] = 1;
+		computed = 1;
+		runningSum = 0;
+
+		int tauEstimate = absoluteThreshold();
+		float pitchInHertz = -1;
+		if(tauEstimate != -1) {
+			computeUpTo(tauEstimate + 1);
+			pitchInHertz = sampleRate / parabolicInterpolation(tauEstimate);
+		}
+		result.setPitch(pitchInHertz);
+		this.audioBuffer = null;
+		return result;
+	}
+
+/**
+ * Finds the first lag below the threshold, then follows it down to the bottom of its dip
+ * @return The lag at the bottom of the dip, or -1 if the threshold was never reached
+ */
+	private int absoluteThreshold() {
+		int length = yinBuffer.length;
+		int tau;
+		for(tau = 2; tau < length; tau++) {
+			computeUpTo(tau);
+			if(yinBuffer[tau] < threshold) {
+				while(tau + 1 < length) {
+					computeUpTo(tau + 1);
+					if(yinBuffer[tau + 1] >= yinBuffer[tau]) {
+						break;
+					}
+					tau++;
+				}
+				result.setProbability(1 - yinBuffer[tau]);
+				break;
+			}
+		}
+		if(tau == length || yinBuffer[tau] >= threshold) {
+			result.setProbability(0);
+			result.setPitched(false);
+			return -1;
+		}
+		result.setPitched(true);
+		return tau;
+	}
+
+/**
+ * Makes sure the normalised difference of every lag up to and including the received one has been computed
+ */
+	private void computeUpTo(int tau) {
+		int length = yinBuffer.length;
+		while(computed <= tau && computed < length) {
+			int start = computed;
+			int end;
+			if(start + LAGS_PER_PASS <= length) {
+				differenceBlock(start);
+				end = start + LAGS_PER_PASS;
+			}
+			else {
+				yinBuffer[start] = difference(start); // the last few lags are done one at a time
+				end = start + 1;
+			}
+			for(int lag = start; lag < end; lag++) {
+				runningSum += yinBuffer[lag];
+				yinBuffer[lag] *= lag / runningSum;
+			}
+			computed = end;
+		}
+	}
+
+/**
+ * Computes the raw difference of four consecutive lags in a single pass over the buffer
+ */
+	private void differenceBlock(int tau) {
+		float[] x = audioBuffer;
+		int length = yinBuffer.length;
+		float sum0 = 0;
+		float sum1 = 0;
+		float sum2 = 0;
+		float sum3 = 0;
+		for(int index = 0; index < length; index++) {
+			float sample = x[index];
+			float delta0 = sample - x[index + tau];
+			float delta1 = sample - x[index + tau + 1];
+			float delta2 = sample - x[index + tau + 2];
+			float delta3 = sample - x[index + tau + 3];
+			sum0 += delta0 * delta0;
+			sum1 += delta1 * delta1;
+			sum2 += delta2 * delta2;
+			sum3 += delta3 * delta3;
+		}
+		yinBuffer[tau] = sum0;
+		yinBuffer[tau + 1] = sum1;
+		yinBuffer[tau + 2] = sum2;
+		yinBuffer[tau + 3] = sum3;
+	}
+
+/**
+ * Computes the raw difference of a single lag
+ */
+	private float difference(int tau) {
+		float[] x = audioBuffer;
+		int length = yinBuffer.length;
+		float sum = 0;
+		for(int index = 0; index < length; index++) {
+			float delta = x[index] - x[index + tau];
+			sum += delta * delta;
+		}
+		return sum;
+	}
+
+/**
+ * Refines the lag at the bottom of the dip using a parabola through it and its neighbours
+ */
+	private float parabolicInterpolation(int tauEstimate) {
+		int x0 = tauEstimate < 1 ? tauEstimate : tauEstimate - 1;
+		int x2 = tauEstimate + 1 < yinBuffer.length ? tauEstimate + 1 : tauEstimate;
+		if(x0 == tauEstimate) {
+			return yinBuffer[tauEstimate] <= yinBuffer[x2] ? tauEstimate : x2;
+		}
+		if(x2 == tauEstimate) {
+			return yinBuffer[tauEstimate] <= yinBuffer[x0] ? tauEstimate : x0;
+		}
+		float s0 = yinBuffer[x0];
+		float s1 = yinBuffer[tauEstimate];
+		float s2 = yinBuffer[x2];
+		return tauEstimate + (s2 - s0) / (2 * (2 * s1 - s2 - s0));
+	}
+}
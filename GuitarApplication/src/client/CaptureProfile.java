@@ -0,0 +1,142 @@
+package client;
+
+/**
+ * This enum holds the selectable microphone capture profiles. Each profile keeps the sample rate, buffer size and
+ * overlap together so that the AudioDispatcher built in Sound.micConnect() and the PitchProcessor built in
+ * LauncherUI always agree with each other.
+ * @author Jonathan Novins
+ * @version 1.0
+ */
+public enum CaptureProfile {
+
+/**
+ * Same window as the original capture but with 75% overlap, so the tuner updates four times as often
+ */
+	LOW_LATENCY(44100, 2048, 1536),
+
+/**
+ * The original window with 50% overlap; a middle ground between responsiveness and CPU use
+ */
+	STANDARD(44100, 2048, 1024),
+
+/**
+ * A long window with 75% overlap for low E, drop tunings and baritone guitars
+ */
+	HIGH_ACCURACY(44100, 4096, 3072),
+
+/**
+ * Short buffers delivered every 256 samples for the AdaptiveWindowProcessor, which builds windows of its own from
+ * 512 to 4096 samples depending on the note being played
+ */
+	ADAPTIVE(44100, 512, 256);
+
+/**
+ * The sample rate in hz used by both the dispatcher and the pitch processor
+ */
+	private final int sampleRate;
+
+/**
+ * The number of samples in each analysis window
+ */
+	private final int bufferSize;
+
+/**
+ * The number of samples each window shares with the one before it
+ */
+	private final int overlap;
+
+/**
+ * Constructs a CaptureProfile
+ * @param sampleRate The sample rate in hz
+ * @param bufferSize The number of samples in each analysis window
+ * @param overlap The number of samples each window shares with the one before it
+ */
+	CaptureProfile(int sampleRate, int bufferSize, int overlap) {
+		this.sampleRate = sampleRate;
+		this.bufferSize = bufferSize;
+		this.overlap = overlap;
+	}
+
+/**
+ * Finds a profile from a user-supplied name such as "low-latency" or "HIGH_ACCURACY"
+ * @param name The name of the desired profile; case and dashes are ignored
+ * @return The matching CaptureProfile, or LOW_LATENCY if the name is null or not recognised
+ */
+	public static CaptureProfile fromName(String name) {
+		if(name == null) {
+			return LOW_LATENCY;
+		}
+		try {
+			return valueOf(name.trim().toUpperCase().replace('-', '_'));
+		}
+		catch(IllegalArgumentException e) {
+			System.out.println("***UNKNOWN CAPTURE PROFILE \"" + name + "\", USING LOW_LATENCY***");
+			return LOW_LATENCY;
+		}
+	}
+
+/**
+ * Basic get method for the int sampleRate
+ * @return The sample rate in hz
+ */
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+/**
+ * Basic get method for the int bufferSize
+ * @return The number of samples in each analysis window
+ */
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+/**
+ * Basic get method for the int overlap
+ * @return The number of samples each window shares with the one before it
+ */
+	public int getOverlap() {
+		return overlap;
+	}
+
+/**
+ * Finds how many new samples arrive between two analysis windows
+ * @return bufferSize - overlap
+ */
+	public int getHopSize() {
+		return bufferSize - overlap;
+	}
+
+/**
+ * Finds the time between two pitch updates
+ * @return The hop duration in milliseconds
+ */
+	public double getHopMillis() {
+		return getHopSize() * 1000.0 / sampleRate;
+	}
+
+/**
+ * Finds the time span covered by a single analysis window
+ * @return The window duration in milliseconds
+ */
+	public double getWindowMillis() {
+		return bufferSize * 1000.0 / sampleRate;
+	}
+
+/**
+ * Finds the expected delay between a note being played and the tuner reacting to it: half a window for the
+ * note to dominate the analysis plus one hop for the next update to arrive
+ * @return The nominal update latency in milliseconds
+ */
+	public double getLatencyMillis() {
+		return getWindowMillis() / 2 + getHopMillis();
+	}
+
+/**
+ * Finds the lowest frequency that YIN can detect with this window (the period must fit in half the buffer)
+ * @return The lowest detectable frequency in hz
+ */
+	public double getLowestFrequency() {
+		return sampleRate / (bufferSize / 2.0);
+	}
+}
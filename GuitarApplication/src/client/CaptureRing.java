@@ -0,0 +1,533 @@
+package client;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import be.tarsos.dsp.io.TarsosDSPAudioFormat;
+import be.tarsos.dsp.io.TarsosDSPAudioInputStream;
+
+/**
+ * This class splits microphone capture from pitch analysis. A dedicated capture thread keeps reading the line into a
+ * fixed pool of chunks arranged as a single-producer single-consumer ring, and the dispatcher reads from the ring as
+ * if it were the line itself. A slow buffer on the analysis side therefore never delays the next read from the line;
+ * if analysis falls far enough behind to fill the ring, chunks are dropped according to the OverflowPolicy and
+ * counted instead of the line overrunning. The ring takes no locks: the consumer copies a chunk out optimistically and
+ * only keeps the copy if the producer did not drop that chunk in the meantime. If a Reconnector is set, a source that
+ * fails, ends or stops delivering audio is replaced on the capture thread, so the dispatcher reading from the ring
+ * never notices the device was lost. A line whose device is unplugged may simply block in read() forever, so a
+ * watchdog thread closes any source that has delivered nothing for too long, which makes the read return. A ring
+ * built without a source waits on the Reconnector for the first one, so capture can start before any device exists.
+ * @author Jonathan Novins
+ * @version 1.0
+ */
+public class CaptureRing implements TarsosDSPAudioInputStream {
+
+/**
+ * What to do with captured audio when the analysis side has not emptied the ring
+ */
+	public enum OverflowPolicy {
+		/**
+		 * Discard the oldest waiting chunk, so analysis always resumes with the most recent audio
+		 */
+		DROP_OLDEST,
+		/**
+		 * Discard the chunk that was just captured, so audio that is already waiting is never lost
+		 */
+		DROP_NEWEST;
+
+		/**
+		 * Finds a policy by its launch argument name, such as drop-newest
+		 * @param name The name of the policy; case and dashes are ignored
+		 * @return The matching policy, or DROP_OLDEST if name is null or not recognised
+		 */
+		public static OverflowPolicy fromName(String name) {
+			if(name != null) {
+				for(OverflowPolicy policy : values()) {
+					if(policy.name().equalsIgnoreCase(name.trim().replace('-', '_'))) {
+						return policy;
+					}
+				}
+			}
+			return DROP_OLDEST;
+		}
+	}
+
+/**
+ * Supplies a replacement source when the current one is lost
+ */
+	public interface Reconnector {
+		/**
+		 * Opens a new source with the same format as the lost one
+		 * @return The new source
+		 * @throws IOException if no source could be opened; the capture thread will try again shortly
+		 */
+		TarsosDSPAudioInputStream reconnect() throws IOException;
+	}
+
+/**
+ * How long a source may deliver nothing before it is considered lost, when a Reconnector is set
+ */
+	private static final long STALL_NANOS = 500000000L;
+
+/**
+ * How long to wait between attempts to open a replacement source
+ */
+	private static final long RETRY_NANOS = 500000000L;
+
+/**
+ * How often the watchdog checks that the source is still delivering
+ */
+	private static final long WATCHDOG_NANOS = STALL_NANOS / 5;
+
+/**
+ * The format of every source
+ */
+	private final TarsosDSPAudioFormat format;
+
+/**
+ * The line (or any other stream) the capture thread reads from; replaced when the device is lost, and null until the
+ * first source is opened if the ring was built without one
+ */
+	private volatile TarsosDSPAudioInputStream source;
+
+/**
+ * Opens a replacement source when the current one is lost, or null to stop capturing instead
+ */
+	private volatile Reconnector reconnector;
+
+/**
+ * The pooled chunks; slot i % capacity holds chunk i
+ */
+	private final byte[][] slots;
+
+/**
+ * Number of valid bytes in every slot
+ */
+	private final int[] lengths;
+
+/**
+ * Number of slots in the ring
+ */
+	private final int capacity;
+
+/**
+ * What happens to new audio while the ring is full
+ */
+	private final OverflowPolicy policy;
+
+/**
+ * Index of the next chunk the consumer will take. Advanced by the consumer, and by the producer when it drops the
+ * oldest chunk, always with compareAndSet.
+ */
+	private final AtomicLong head = new AtomicLong();
+
+/**
+ * Index of the next chunk the producer will fill. Only advanced by the producer. The producer writes tail and then
+ * reads waiter while the consumer writes waiter and then reads tail, so both sides use volatile accesses to ensure at
+ * least one of them sees the other's write.
+ */
+	private final AtomicLong tail = new AtomicLong();
+
+/**
+ * Chunk the producer reads into when it has to discard new audio
+ */
+	private final byte[] discard;
+
+/**
+ * The chunk currently being handed to the dispatcher; owned by the consumer
+ */
+	private final byte[] current;
+
+/**
+ * Number of valid bytes in current, and how many of them have been handed out
+ */
+	private int currentLength, currentOffset;
+
+/**
+ * The consumer thread while it is parked waiting for audio, otherwise null
+ */
+	private volatile Thread waiter;
+
+/**
+ * Set once the source has ended or the ring has been closed
+ */
+	private volatile boolean finished;
+
+/**
+ * When the capture thread last started reading a chunk or received audio, from System.nanoTime(), or 0 while it is
+ * not reading
+ */
+	private volatile long progressNanos;
+
+/**
+ * Set by the watchdog when it closed a source that stopped delivering, until the source is replaced
+ */
+	private volatile boolean stalled;
+
+/**
+ * Number of chunks captured from the source and number that were dropped because the ring was full
+ */
+	private volatile long capturedChunks, droppedChunks;
+
+/**
+ * Number of times the source was replaced after being lost
+ */
+	private volatile long reconnects;
+
+/**
+ * Constructs a CaptureRing; nothing is read until start() is called
+ * @param source The stream to capture from, normally the microphone line
+ * @param chunkBytes Number of bytes read from the source at a time; one hop of the dispatcher is a good size
+ * @param capacity Number of chunks the ring can hold before it overflows
+ * @param policy Which chunk to discard when the ring is full
+ */
+	public CaptureRing(TarsosDSPAudioInputStream source, int chunkBytes, int capacity, OverflowPolicy policy) {
+		this(source.getFormat(), chunkBytes, capacity, policy);
+		this.source = source;
+	}
+
+/**
+ * Constructs a CaptureRing with no source yet; once started, the capture thread asks the Reconnector for the first
+ * one and keeps retrying until a device is available
+ * @param format The format every source will have
+ * @param chunkBytes Number of bytes read from the source at a time; one hop of the dispatcher is a good size
+ * @param capacity Number of chunks the ring can hold before it overflows
+ * @param policy Which chunk to discard when the ring is full
+ */
+	public CaptureRing(TarsosDSPAudioFormat format, int chunkBytes, int capacity, OverflowPolicy policy) {
+		chunkBytes -= chunkBytes % format.getFrameSize();
+		this.format = format;
+		this.capacity = capacity;
+		this.policy = policy;
+		slots = new byte[capacity][chunkBytes];
+		lengths = new int[capacity];
+		discard = new byte[chunkBytes];
+		current = new byte[chunkBytes];
+	}
+
+/**
+ * Starts the capture thread and its watchdog
+ */
+	public void start() {
+		Thread captureThread = new Thread(this::capture, "audio-capture");
+		captureThread.setDaemon(true);
+		captureThread.setPriority(Thread.MAX_PRIORITY);
+		captureThread.start();
+		Thread watchdog = new Thread(this::watch, "audio-watchdog");
+		watchdog.setDaemon(true);
+		watchdog.start();
+	}
+
+/**
+ * Sets what replaces the source when it is lost
+ * @param reconnector Opens a replacement source, or null to stop capturing when the source is lost
+ */
+	public void setReconnector(Reconnector reconnector) {
+		this.reconnector = reconnector;
+	}
+
+/**
+ * The capture loop: captures chunks until the ring is closed, replacing the source whenever it is lost
+ */
+	private void capture() {
+		if(source == null && !reconnect("no recording device")) {
+			finished = true;
+		}
+		while(!finished) {
+			String lost;
+			try {
+				if(captureChunk()) {
+					continue;
+				}
+				lost = null; // the source ended
+			}
+			catch(IOException e) {
+				lost = e.getMessage();
+			}
+			if(finished || !reconnect(lost)) {
+				break;
+			}
+		}
+		finished = true;
+		Thread w = waiter;
+		if(w != null) {
+			LockSupport.unpark(w);
+		}
+	}
+
+/**
+ * Fills the next free slot from the source, or handles the overflow if there is none
+ * @return false if the source ended
+ */
+	private boolean captureChunk() throws IOException {
+		long t = tail.get();
+		if(t - head.get() >= capacity) {
+			if(policy == OverflowPolicy.DROP_NEWEST) {
+				if(fill(discard) < 0) {
+					return false;
+				}
+				capturedChunks++;
+				droppedChunks++;
+				return true;
+			}
+			long h = head.get();
+			if(t - h >= capacity && head.compareAndSet(h, h + 1)) {
+				droppedChunks++;
+			}
+			return true;
+		}
+		int slot = (int) (t % capacity);
+		int length = fill(slots[slot]);
+		if(length < 0) {
+			return false;
+		}
+		lengths[slot] = length;
+		// publishes the slot's contents to the consumer. A full volatile write, not lazySet: the read of waiter below must
+		// not be reordered ahead of it, or a consumer that parks after checking tail could miss this wakeup
+		tail.set(t + 1);
+		capturedChunks++;
+		Thread w = waiter;
+		if(w != null) {
+			LockSupport.unpark(w);
+		}
+		return true;
+	}
+
+/**
+ * Checks, until the ring is closed, that the capture thread is not stuck in a read of a source that stopped
+ * delivering. Such a source is closed so the read returns, and fill() then reports it as lost.
+ */
+	private void watch() {
+		while(!finished) {
+			LockSupport.parkNanos(this, WATCHDOG_NANOS);
+			long progress = progressNanos;
+			TarsosDSPAudioInputStream in = source;
+			if(progress == 0 || in == null || reconnector == null || System.nanoTime() - progress <= STALL_NANOS) {
+				continue;
+			}
+			stalled = true;
+			try {
+				in.close();
+			}
+			catch(IOException e) {
+				// the read it was blocking is what matters; it returns either way
+			}
+		}
+	}
+
+/**
+ * Replaces a lost source through the Reconnector, retrying until it succeeds or the ring is closed
+ * @param reason Why the source was lost, or null if it simply ended
+ * @return true if capturing can continue from a new source
+ */
+	private boolean reconnect(String reason) {
+		Reconnector current = reconnector;
+		if(current == null) {
+			if(reason != null) {
+				System.out.println("***AUDIO CAPTURE STOPPED: " + reason + "***");
+			}
+			return false;
+		}
+		boolean first = source == null;
+		System.out.println(first ? "***NO RECORDING DEVICE, WAITING FOR ONE***"
+				: "***AUDIO DEVICE LOST (" + (reason == null ? "end of stream" : reason) + "), RECONNECTING***");
+		while(!finished) {
+			try {
+				source = current.reconnect();
+				stalled = false;
+				if(!first) {
+					reconnects++;
+				}
+				System.out.println(first ? "***AUDIO DEVICE CONNECTED***" : "***AUDIO DEVICE RECONNECTED***");
+				return true;
+			}
+			catch(IOException e) {
+				LockSupport.parkNanos(this, RETRY_NANOS);
+			}
+		}
+		return false;
+	}
+
+/**
+ * Reads one whole chunk from the source. While it reads, the watchdog closes the source if it delivers nothing for
+ * STALL_NANOS, whether the read blocks or keeps returning nothing.
+ * @return The number of bytes read, or -1 if the source ended before any were
+ * @throws IOException if the source fails, or delivers nothing for too long while a Reconnector is set
+ */
+	private int fill(byte[] chunk) throws IOException {
+		TarsosDSPAudioInputStream in = source;
+		int total = 0;
+		progressNanos = System.nanoTime();
+		try {
+			while(total < chunk.length) {
+				int read = in.read(chunk, total, chunk.length - total);
+				if(stalled) {
+					throw new IOException("no audio for " + STALL_NANOS / 1000000 + " ms");
+				}
+				if(read < 0) {
+					return total == 0 ? -1 : total;
+				}
+				if(read == 0) {
+					LockSupport.parkNanos(this, 1000000);
+					continue;
+				}
+				total += read;
+				progressNanos = System.nanoTime();
+			}
+			return total;
+		} finally {
+			progressNanos = 0;
+		}
+	}
+
+/**
+ * Takes the oldest chunk out of the ring into current, waiting for one if the ring is empty
+ * @return false once the source has ended and the ring is empty
+ */
+	private boolean take() {
+		while(true) {
+			long h = head.get();
+			if(h < tail.get()) {
+				int slot = (int) (h % capacity);
+				int length = lengths[slot];
+				System.arraycopy(slots[slot], 0, current, 0, length);
+				// if the producer dropped this chunk while it was being copied, the copy may be torn; take the next one
+				if(head.compareAndSet(h, h + 1)) {
+					currentLength = length;
+					currentOffset = 0;
+					return true;
+				}
+				continue;
+			}
+			if(finished) {
+				if(head.get() >= tail.get()) {
+					return false;
+				}
+				continue; // the last chunks were published just before capture ended
+			}
+			waiter = Thread.currentThread();
+			if(head.get() >= tail.get() && !finished) {
+				LockSupport.park(this);
+			}
+			waiter = null;
+		}
+	}
+
+/**
+ * Hands captured bytes to the dispatcher, blocking until some are available
+ * @return The number of bytes copied, or -1 once capture has ended and everything captured has been read
+ */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if(currentOffset >= currentLength && !take()) {
+			return -1;
+		}
+		int count = Math.min(len, currentLength - currentOffset);
+		System.arraycopy(current, currentOffset, b, off, count);
+		currentOffset += count;
+		return count;
+	}
+
+/**
+ * Skips captured bytes
+ * @return The number of bytes actually skipped
+ */
+	@Override
+	public long skip(long bytesToSkip) throws IOException {
+		long skipped = 0;
+		while(skipped < bytesToSkip) {
+			if(currentOffset >= currentLength && !take()) {
+				break;
+			}
+			int count = (int) Math.min(bytesToSkip - skipped, currentLength - currentOffset);
+			currentOffset += count;
+			skipped += count;
+		}
+		return skipped;
+	}
+
+/**
+ * Stops capturing and closes the source, which also ends the dispatcher once it has read what is left
+ */
+	@Override
+	public void close() throws IOException {
+		finished = true;
+		TarsosDSPAudioInputStream in = source;
+		if(in != null) {
+			in.close();
+		}
+		Thread w = waiter;
+		if(w != null) {
+			LockSupport.unpark(w);
+		}
+	}
+
+/**
+ * Basic get method for the source's TarsosDSPAudioFormat
+ */
+	@Override
+	public TarsosDSPAudioFormat getFormat() {
+		return format;
+	}
+
+/**
+ * Live capture has no fixed length
+ * @return -1
+ */
+	@Override
+	public long getFrameLength() {
+		return -1;
+	}
+
+/**
+ * Basic get method for the long capturedChunks
+ * @return The number of chunks read from the source, including dropped ones
+ */
+	public long getCapturedChunks() {
+		return capturedChunks;
+	}
+
+/**
+ * Basic get method for the long droppedChunks
+ * @return The number of chunks discarded because the ring was full
+ */
+	public long getDroppedChunks() {
+		return droppedChunks;
+	}
+
+/**
+ * Basic get method for the long reconnects
+ * @return The number of times the source was replaced after being lost
+ */
+	public long getReconnects() {
+		return reconnects;
+	}
+
+/**
+ * Finds how many audio frames were discarded because the ring was full
+ * @return The number of dropped frames
+ */
+	public long getDroppedFrames() {
+		return droppedChunks * (discard.length / getFormat().getFrameSize());
+	}
+
+/**
+ * Finds how many chunks are currently waiting to be analysed
+ * @return The number of filled slots
+ */
+	public int getBacklog() {
+		return (int) Math.max(0, tail.get() - head.get());
+	}
+
+/**
+ * Builds a one-line summary of how much audio was captured and dropped
+ * @return A String suitable for printing to the console
+ */
+	public String report() {
+		long captured = capturedChunks;
+		long dropped = droppedChunks;
+		return String.format("***CAPTURE RING: %d of %d chunks dropped (%.2f%%, %d frames, %s), %d of %d slots waiting, "
+				+ "%d reconnects***", dropped, captured, captured == 0 ? 0 : 100.0 * dropped / captured, getDroppedFrames(),
+				policy, getBacklog(), capacity, reconnects);
+	}
+}
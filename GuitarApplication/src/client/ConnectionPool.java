@@ -0,0 +1,384 @@
+package client;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class acts as a bounded pool of database connections, so account operations from several threads can run at
+ * the same time without opening a connection each. A fair semaphore caps the number of connections lent out, and
+ * borrowers wait for one in arrival order up to the borrow timeout. Idle connections are kept most recently returned
+ * first, so the busiest few stay warm while the rest age out: a background thread closes any that have been idle too
+ * long, and every connection is retired once it reaches its maximum lifetime, before the server or a firewall drops
+ * it. A connection is also checked with isValid() every time it is borrowed.
+ * @author Jonathan Novins
+ * @version 1.0
+ */
+public class ConnectionPool implements AutoCloseable {
+
+/**
+ * Most connections open at once when no size is given
+ */
+	public static final int DEFAULT_MAX_SIZE = 8;
+
+/**
+ * How long borrow() waits for a connection when no timeout is given, in milliseconds
+ */
+	public static final long DEFAULT_BORROW_TIMEOUT_MILLIS = 5000;
+
+/**
+ * How long a connection may sit unused before it is closed when no timeout is given, in milliseconds
+ */
+	public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 60000;
+
+/**
+ * How long a connection is kept at most when no lifetime is given, in milliseconds; below MySQL's default
+ * wait_timeout of 8 hours
+ */
+	public static final long DEFAULT_MAX_LIFETIME_MILLIS = 30 * 60000;
+
+/**
+ * How long isValid() may take on borrow, in seconds
+ */
+	private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+/**
+ * The JDBC URL, user and password every connection is opened with
+ */
+	private final String url, user, password;
+
+/**
+ * Most connections open at once
+ */
+	private final int maxSize;
+
+/**
+ * Timeouts in nanoseconds
+ */
+	private final long borrowTimeoutNanos, idleTimeoutNanos, maxLifetimeNanos;
+
+/**
+ * One permit per connection that may be lent out
+ */
+	private final Semaphore permits;
+
+/**
+ * Connections waiting to be borrowed, most recently returned first
+ */
+	private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<PooledConnection>();
+
+/**
+ * Closes idle and expired connections in the background
+ */
+	private final ScheduledExecutorService evictor;
+
+/**
+ * Number of connections currently lent out
+ */
+	private final AtomicInteger active = new AtomicInteger();
+
+/**
+ * Counters for the report
+ */
+	private final AtomicLong borrows = new AtomicLong(), created = new AtomicLong(), closed = new AtomicLong(),
+			evicted = new AtomicLong(), validationFailures = new AtomicLong(), timeouts = new AtomicLong(),
+			waits = new AtomicLong(), totalWaitNanos = new AtomicLong(), maxWaitNanos = new AtomicLong(),
+			statementHits = new AtomicLong(), statementMisses = new AtomicLong();
+
+/**
+ * Set once close() has been called
+ */
+	private volatile boolean shutdown;
+
+/**
+ * Constructs a ConnectionPool with the default size and timeouts
+ * @param url The JDBC URL of the database
+ * @param user The user to connect as
+ * @param password The user's password
+ */
+	public ConnectionPool(String url, String user, String password) {
+		this(url, user, password, DEFAULT_MAX_SIZE, DEFAULT_BORROW_TIMEOUT_MILLIS, DEFAULT_IDLE_TIMEOUT_MILLIS,
+				DEFAULT_MAX_LIFETIME_MILLIS);
+	}
+
+/**
+ * Constructs a ConnectionPool. No connection is opened until the first borrow.
+ * @param url The JDBC URL of the database
+ * @param user The user to connect as
+ * @param password The user's password
+ * @param maxSize Most connections open at once
+ * @param borrowTimeoutMillis How long borrow() waits for a connection before giving up
+ * @param idleTimeoutMillis How long a connection may sit unused before it is closed
+ * @param maxLifetimeMillis How long a connection is kept at most
+ */
+	public ConnectionPool(String url, String user, String password, int maxSize, long borrowTimeoutMillis,
+			long idleTimeoutMillis, long maxLifetimeMillis) {
+		this.url = url;
+		this.user = user;
+		this.password = password;
+		this.maxSize = maxSize;
+		this.borrowTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMillis);
+		this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+		this.maxLifetimeNanos = TimeUnit.MILLISECONDS.toNanos(maxLifetimeMillis);
+		permits = new Semaphore(maxSize, true);
+		evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "db-pool-evictor");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long period = Math.max(1000, Math.min(idleTimeoutMillis, maxLifetimeMillis) / 2);
+		evictor.scheduleWithFixedDelay(this::evict, period, period, TimeUnit.MILLISECONDS);
+	}
+
+/**
+ * Borrows a connection, waiting up to the borrow timeout for one to become free. Idle connections are reused if
+ * they are still valid and young enough; otherwise a new one is opened.
+ * @return The borrowed connection; close it to hand it back
+ * @throws SQLTimeoutException if no connection became free in time
+ * @throws SQLException if the pool is closed or a new connection could not be opened
+ */
+	public PooledConnection borrow() throws SQLException {
+		if(shutdown) {
+			throw new SQLException("Connection pool is closed");
+		}
+		long start = System.nanoTime();
+		try {
+			if(!permits.tryAcquire(borrowTimeoutNanos, TimeUnit.NANOSECONDS)) {
+				timeouts.incrementAndGet();
+				recordWait(System.nanoTime() - start);
+				throw new SQLTimeoutException("Timed out after " + TimeUnit.NANOSECONDS.toMillis(borrowTimeoutNanos)
+						+ " ms waiting for a database connection (" + active.get() + " of " + maxSize + " in use)");
+			}
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a database connection", e);
+		}
+		recordWait(System.nanoTime() - start);
+
+		try {
+			PooledConnection pooled;
+			while((pooled = idle.pollFirst()) != null) {
+				if(isExpired(pooled, System.nanoTime())) {
+					discard(pooled);
+					continue;
+				}
+				if(!isValid(pooled)) {
+					validationFailures.incrementAndGet();
+					discard(pooled);
+					continue;
+				}
+				return lend(pooled);
+			}
+			Connection connection = DriverManager.getConnection(url, user, password);
+			created.incrementAndGet();
+			return lend(new PooledConnection(this, connection));
+		}
+		catch(SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+/**
+ * Marks a connection as lent out
+ */
+	private PooledConnection lend(PooledConnection pooled) {
+		pooled.borrowed = true;
+		active.incrementAndGet();
+		borrows.incrementAndGet();
+		return pooled;
+	}
+
+/**
+ * Takes a connection back. Broken or expired connections, and every connection once the pool is closed, are closed
+ * instead of being kept. Called by PooledConnection.close().
+ */
+	void release(PooledConnection pooled) {
+		synchronized(pooled) {
+			if(!pooled.borrowed) {
+				return; // already returned
+			}
+			pooled.borrowed = false;
+		}
+		active.decrementAndGet();
+		long now = System.nanoTime();
+		pooled.returnedNanos = now;
+		boolean keep = !shutdown && !pooled.isBroken() && !isExpired(pooled, now);
+		if(keep) {
+			try {
+				Connection connection = pooled.getConnection();
+				if(!connection.getAutoCommit()) {
+					connection.rollback(); // never hand the next borrower someone else's open transaction
+					connection.setAutoCommit(true);
+				}
+			}
+			catch(SQLException e) {
+				keep = false;
+			}
+		}
+		if(keep) {
+			idle.offerFirst(pooled);
+			if(shutdown && idle.remove(pooled)) {
+				discard(pooled); // close() drained the idle connections before this one was added
+			}
+		}
+		else {
+			discard(pooled);
+		}
+		permits.release();
+	}
+
+/**
+ * Finds whether a connection has reached its maximum lifetime
+ */
+	private boolean isExpired(PooledConnection pooled, long now) {
+		return now - pooled.createdNanos >= maxLifetimeNanos;
+	}
+
+/**
+ * Asks the driver whether a connection still works
+ */
+	private static boolean isValid(PooledConnection pooled) {
+		try {
+			return pooled.getConnection().isValid(VALIDATION_TIMEOUT_SECONDS);
+		}
+		catch(SQLException e) {
+			return false;
+		}
+	}
+
+/**
+ * Closes a physical connection, ignoring errors since it is being thrown away
+ */
+	private void discard(PooledConnection pooled) {
+		closed.incrementAndGet();
+		try {
+			pooled.getConnection().close();
+		}
+		catch(SQLException e) {
+			// nothing more can be done with it
+		}
+	}
+
+/**
+ * Closes idle connections that have been unused for too long or have reached their lifetime. Runs on the evictor
+ * thread; a connection is only closed if it is removed from the idle deque here, so one being borrowed at the same
+ * moment is never touched.
+ */
+	private void evict() {
+		long now = System.nanoTime();
+		Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+		while(oldestFirst.hasNext()) {
+			PooledConnection pooled = oldestFirst.next();
+			if((now - pooled.returnedNanos >= idleTimeoutNanos || isExpired(pooled, now))
+					&& idle.removeLastOccurrence(pooled)) {
+				evicted.incrementAndGet();
+				discard(pooled);
+			}
+		}
+	}
+
+/**
+ * Adds one borrow's wait to the wait time metrics, whether or not it ended with a connection
+ */
+	private void recordWait(long waitNanos) {
+		waits.incrementAndGet();
+		totalWaitNanos.addAndGet(waitNanos);
+		long max;
+		while(waitNanos > (max = maxWaitNanos.get()) && !maxWaitNanos.compareAndSet(max, waitNanos)) {
+			// another borrower raised the maximum first; try again against the new value
+		}
+	}
+
+/**
+ * Counts one PreparedStatement lookup for the report. Called by PooledConnection.prepare().
+ * @param hit Whether the statement was already cached on the connection
+ */
+	void recordStatement(boolean hit) {
+		(hit ? statementHits : statementMisses).incrementAndGet();
+	}
+
+/**
+ * Stops the evictor and closes every idle connection. Connections still lent out are closed when they are returned.
+ */
+	@Override
+	public void close() {
+		shutdown = true;
+		evictor.shutdownNow();
+		PooledConnection pooled;
+		while((pooled = idle.pollFirst()) != null) {
+			discard(pooled);
+		}
+	}
+
+/**
+ * Basic get method for the int maxSize
+ * @return The most connections this pool opens at once
+ */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+/**
+ * Finds how many connections are currently lent out
+ * @return The number of active connections
+ */
+	public int getActiveCount() {
+		return active.get();
+	}
+
+/**
+ * Finds how many connections are open and waiting to be borrowed
+ * @return The number of idle connections
+ */
+	public int getIdleCount() {
+		return idle.size();
+	}
+
+/**
+ * Finds how many borrowers are currently waiting for a connection
+ * @return The number of waiting threads
+ */
+	public int getWaitingCount() {
+		return permits.getQueueLength();
+	}
+
+/**
+ * Finds the average time borrowers waited for a connection, including those that timed out
+ * @return The mean wait in milliseconds
+ */
+	public double getAverageWaitMillis() {
+		long count = waits.get();
+		return count == 0 ? 0 : totalWaitNanos.get() / 1e6 / count;
+	}
+
+/**
+ * Finds the longest time a borrower waited for a connection
+ * @return The maximum wait in milliseconds
+ */
+	public double getMaxWaitMillis() {
+		return maxWaitNanos.get() / 1e6;
+	}
+
+/**
+ * Builds a one-line summary of the pool's state and history
+ * @return A String suitable for printing to the console
+ */
+	public String report() {
+		return String.format("***DB POOL: %d active, %d idle, %d waiting of %d | %d borrows, wait avg %.2f ms max %.2f ms, "
+				+ "%d timeouts | %d opened, %d closed (%d evicted, %d failed validation) | statements %d cached, %d prepared***",
+				getActiveCount(), getIdleCount(), getWaitingCount(), maxSize, borrows.get(), getAverageWaitMillis(),
+				getMaxWaitMillis(), timeouts.get(), created.get(), closed.get(), evicted.get(), validationFailures.get(),
+				statementHits.get(), statementMisses.get());
+	}
+}
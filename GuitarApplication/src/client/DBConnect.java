@@ -1,46 +1,84 @@
 package client;
 
 import java.sql.*;
-import userInterface.LauncherUI;
 
 /**
  * This class acts to handle all database related queries, actions, and executions
- * that may need to occur. Uses standard JDBC Driver and imports the LauncherUI class from
- * the userInterface package.
+ * that may need to occur. Uses standard JDBC Driver. Every method borrows its own connection from a ConnectionPool and
+ * keeps its ResultSet local, so account operations from different threads can run at the same time
+ * without interfering with each other. User input is only ever passed as a parameter of a
+ * PreparedStatement cached on the borrowed connection, never pasted into the SQL.
  * @author Jonathan Novins
- * @version 1.1
+ * @version 1.2
  */
 	public class DBConnect {
 
 /**
- * Global Connection variable; Only necessary Connection throughout the application
+ * The JDBC URL of the guitar_helper database. useServerPrepStmts has MySQL parse and plan each query once per
+ * Connection; the PreparedStatements themselves are cached by PooledConnection, so the driver's own cache is not used.
  */
-	private Connection ghCon;
+	public static final String URL = "jdbc:mysql://localhost:3306/guitar_helper?useServerPrepStmts=true";
+
+/**
+ * Query counting the accounts with a given username
+ */
+	private static final String IS_TAKEN_SQL = "SELECT COUNT(user_name) FROM user_accounts WHERE user_name = ?";
+
 /**
- * Global Statement Object used to send queries/insert/update etc through the Connection Driver
+ * Insert creating an account from a username and password
  */
-	private Statement ghStmt;
+	private static final String CREATE_ACCOUNT_SQL = "INSERT INTO user_accounts VALUES (DEFAULT, ?, ?, DEFAULT)";
+
+/**
+ * Query finding the password of a given username
+ */
+	private static final String LOGIN_SQL = "SELECT user_password FROM user_accounts WHERE user_name = ?";
+
 /**
- * Global ResultSet Object used to retrieve the required information from the JDBC Statement
+ * Pool of Connections to the database; each method borrows one for as long as it needs it
  */
-	private ResultSet ghRs;
+	private final ConnectionPool ghPool;
 
 /**
- * This constructs a DBConnect Object that will act to execute any database related methods.
+ * This constructs a DBConnect Object that will act to execute any database related methods. Nothing is
+ * loaded or connected until the first query or warmUp(), so constructing one never waits on the database.
  */
 	public DBConnect() {
+		this(new ConnectionPool(URL, "admin", "password"));
+	}
+
+/**
+ * This constructs a DBConnect Object that executes its database related methods through the received pool.
+ * Nothing is connected until the first query or warmUp().
+ * @param pool - the ConnectionPool every method borrows its Connection from
+ */
+	public DBConnect(ConnectionPool pool) {
+		ghPool = pool;
+	}
+
+/**
+ * Loads the driver and opens the first pooled Connection, so the first query does not pay for either. Slow
+ * when the database is slow or unreachable, so it should be called off the JavaFX thread.
+ * @throws SQLException thrown if no Connection to the database could be opened
+ */
+	public void warmUp() throws SQLException {
 		try {
-			Class.forName("com.mysql.jdbc.Driver");
-			System.out.println("***DBCONNECT SUCCESSFULLY OPENED***");
-			
-			ghCon = DriverManager.getConnection("jdbc:mysql://localhost:3306/guitar_helper", "admin", "password");
-			ghStmt = ghCon.createStatement();
+			try {
+				Class.forName("com.mysql.jdbc.Driver");
+			}
+			catch(ClassNotFoundException e) {
+				// JDBC 4 drivers register themselves, so a stand-in database can still be reached through the pool
+			}
 			
+			PooledConnection warm = ghPool.borrow();
+			warm.close();
+			System.out.println("***DBCONNECT SUCCESSFULLY OPENED***");
 		}
-		catch(Exception dbEx){
+		catch(SQLException dbEx){
 			System.out.println("***FAILED TO CONNECT TO DB***");
 			System.out.println("[PLEASE MAKE SURE ALL REQUIRED PORTS ARE OPEN (3306 BY DEFUALT)]");
 			System.out.println(dbEx + "\n\n\n\n\n");
+			throw dbEx;
 		}
 	}
 	
@@ -55,15 +93,17 @@ import userInterface.LauncherUI;
 	public boolean isTaken(String username) throws SQLException {
 		boolean taken = false;
 		
-		ghRs = ghStmt.executeQuery("SELECT COUNT(user_name) " +
-									"FROM user_accounts " +
-									"WHERE user_name = '" + username + "'");
-		
-		ghRs.first();
-		int usernameCount = ghRs.getInt(1);
-		
-		if(usernameCount > 0) {
-			taken = true;
+		try(PooledConnection pooled = ghPool.borrow()) {
+			PreparedStatement stmt = pooled.prepare(IS_TAKEN_SQL);
+			stmt.setString(1, username);
+			try(ResultSet rs = stmt.executeQuery()) {
+				rs.next();
+				int usernameCount = rs.getInt(1);
+				
+				if(usernameCount > 0) {
+					taken = true;
+				}
+			}
 		}
 		
 		return taken;
@@ -77,10 +117,12 @@ import userInterface.LauncherUI;
  * @throws SQLException thrown if INSERT statement causes a database error (such as a taken username being sent)
  */
 	public void createAccount(String username, String password) throws SQLException {
-		String statement = "INSERT INTO user_accounts " +
-				"VALUES (DEFAULT, '" + username + "', '" + password + "', DEFAULT) ";
-
-		ghStmt.execute(statement);
+		try(PooledConnection pooled = ghPool.borrow()) {
+			PreparedStatement stmt = pooled.prepare(CREATE_ACCOUNT_SQL);
+			stmt.setString(1, username);
+			stmt.setString(2, password);
+			stmt.executeUpdate();
+		}
 	}
 
 /**
@@ -92,18 +134,31 @@ import userInterface.LauncherUI;
  * @throws SQLException thrown if an error occurs from the database's end of the query execution
  */
 	public boolean login(String username, String password) throws SQLException {
-		String requiredPassword = "";
-		ghRs = ghStmt.executeQuery("SELECT user_password " + 
-							"FROM user_accounts " +
-							"WHERE user_name = '" + username + "'");
-		ghRs.first();
-		if(!ghRs.wasNull()) {
-			requiredPassword = ghRs.getString(1);
-		}
-		if(requiredPassword.equals(password)) {
-			LauncherUI.loggedName = username;
-			return true;
+		String requiredPassword = null;
+		try(PooledConnection pooled = ghPool.borrow()) {
+			PreparedStatement stmt = pooled.prepare(LOGIN_SQL);
+			stmt.setString(1, username);
+			try(ResultSet rs = stmt.executeQuery()) {
+				if(rs.next()) {
+					requiredPassword = rs.getString(1);
+				}
+			}
 		}
-		return false;
+		return requiredPassword != null && requiredPassword.equals(password); // the caller records who is logged in
+	}
+
+/**
+ * Basic get method for the ConnectionPool ghPool
+ * @return The pool every database related method borrows its Connection from
+ */
+	public ConnectionPool getPool() {
+		return ghPool;
+	}
+
+/**
+ * Closes every pooled Connection; should be called once the application no longer needs the database
+ */
+	public void close() {
+		ghPool.close();
 	}
 }
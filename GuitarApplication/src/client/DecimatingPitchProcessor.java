@@ -0,0 +1,215 @@
+package client;
+
+import java.util.Arrays;
+import be.tarsos.dsp.AudioEvent;
+import be.tarsos.dsp.AudioProcessor;
+import be.tarsos.dsp.pitch.PitchDetectionHandler;
+import be.tarsos.dsp.pitch.PitchDetector;
+
+/**
+ * This class runs pitch detection at a fraction of the capture sample rate. Guitar fundamentals stop around 1.2khz,
+ * so a 44.1khz buffer carries far more bandwidth than a pitch detector needs. Every new sample goes through a
+ * windowed-sinc low-pass filter and only every factor-th output is kept, and only the kept outputs are ever computed
+ * (polyphase decimation). The decimated samples build up a window covering the same span of time as the dispatcher's
+ * buffer, just factor times shorter, and the detector analyses that window instead. YIN's cost grows with the square
+ * of the window, so decimating by 4 cuts it by roughly 16. Latency grows only by the filter's group delay, well under
+ * a millisecond.
+ * @author Jonathan Novins
+ * @version 1.0
+ */
+public class DecimatingPitchProcessor implements AudioProcessor {
+
+/**
+ * A good decimation factor for guitar at 44.1khz; leaves a bandwidth of about 4.4khz
+ */
+	public static final int DEFAULT_FACTOR = 4;
+
+/**
+ * Number of filter taps per decimation phase; more taps give a steeper filter at a higher cost
+ */
+	private static final int TAPS_PER_PHASE = 12;
+
+/**
+ * Filter cutoff as a fraction of the decimated sample rate. Below the decimated Nyquist frequency of 0.5, leaving
+ * room for the transition band so harmonics that would fold back are already attenuated.
+ */
+	private static final double CUTOFF = 0.4;
+
+/**
+ * Number of input samples per kept sample
+ */
+	private final int factor;
+
+/**
+ * The filter taps, stored in reverse so the inner loop walks forward through the input
+ */
+	private final float[] taps;
+
+/**
+ * The detector that analyses the decimated window
+ */
+	private final PitchDetector detector;
+
+/**
+ * The handler every result is passed to
+ */
+	private final PitchDetectionHandler handler;
+
+/**
+ * The sample rate in hz of the incoming audio
+ */
+	private final float sampleRate;
+
+/**
+ * The most recent decimated samples, oldest first; this is what the detector sees
+ */
+	private final float[] decimated;
+
+/**
+ * The taps.length - 1 input samples before the current buffer's new samples, followed by those new samples
+ */
+	private float[] input;
+
+/**
+ * Number of input samples to skip before the next kept output, carried between buffers
+ */
+	private int phase;
+
+/**
+ * Stream position of the previous buffer in samples, or Long.MIN_VALUE if the stream must be restarted
+ */
+	private long lastPosition = Long.MIN_VALUE;
+
+/**
+ * Constructs a DecimatingPitchProcessor that detects pitch with BlockedYin at the reduced rate
+ * @param sampleRate The sample rate in hz of the incoming audio
+ * @param bufferSize The size of the buffers the dispatcher delivers; must be a multiple of factor
+ * @param factor Number of input samples per analysed sample
+ * @param handler Receives the result for every buffer
+ */
+	public DecimatingPitchProcessor(float sampleRate, int bufferSize, int factor, PitchDetectionHandler handler) {
+		this(sampleRate, bufferSize, factor, new BlockedYin(sampleRate / factor, bufferSize / factor), handler);
+	}
+
+/**
+ * Constructs a DecimatingPitchProcessor
+ * @param sampleRate The sample rate in hz of the incoming audio
+ * @param bufferSize The size of the buffers the dispatcher delivers; must be a multiple of factor
+ * @param factor Number of input samples per analysed sample
+ * @param detector A detector built for sampleRate / factor and bufferSize / factor
+ * @param handler Receives the result for every buffer
+ */
+	public DecimatingPitchProcessor(float sampleRate, int bufferSize, int factor, PitchDetector detector,
+			PitchDetectionHandler handler) {
+		if(factor < 1 || bufferSize % factor != 0) {
+			throw new IllegalArgumentException("Buffer size " + bufferSize + " is not a multiple of factor " + factor);
+		}
+		this.sampleRate = sampleRate;
+		this.factor = factor;
+		this.detector = detector;
+		this.handler = handler;
+		decimated = new float[bufferSize / factor];
+		taps = designFilter(factor);
+		input = new float[taps.length - 1 + bufferSize];
+	}
+
+/**
+ * Designs a Blackman-windowed sinc low-pass filter with unity gain at DC
+ * @return The taps in reverse order
+ */
+	private static float[] designFilter(int factor) {
+		int length = TAPS_PER_PHASE * factor + 1;
+		double cutoff = CUTOFF / factor; // as a fraction of the input sample rate
+		double middle = (length - 1) / 2.0;
+		double[] h = new double[length];
+		double sum = 0;
+		for(int i = 0; i < length; i++) {
+			double x = i - middle;
+			double sinc = x == 0 ? 2 * cutoff : Math.sin(2 * Math.PI * cutoff * x) / (Math.PI * x);
+			double window = 0.42 - 0.5 * Math.cos(2 * Math.PI * i / (length - 1)) + 0.08 * Math.cos(4 * Math.PI * i / (length - 1));
+			h[i] = sinc * window;
+			sum += h[i];
+		}
+		float[] reversed = new float[length];
+		for(int i = 0; i < length; i++) {
+			reversed[length - 1 - i] = (float) (h[i] / sum);
+		}
+		return reversed;
+	}
+
+/**
+ * Filters and decimates the samples that are new in this buffer, then runs the detector on the decimated window
+ */
+	@Override
+	public boolean process(AudioEvent audioEvent) {
+		float[] buffer = audioEvent.getFloatBuffer();
+		long position = Math.round(audioEvent.getTimeStamp() * sampleRate);
+		long hop = position - lastPosition;
+		lastPosition = position;
+		int history = taps.length - 1;
+		if(input.length != history + buffer.length) {
+			input = new float[history + buffer.length];
+			hop = -1;
+		}
+
+		int fresh;
+		if(hop > 0 && hop <= buffer.length) {
+			fresh = (int) hop; // the history already holds the samples just before these
+		}
+		else {
+			// first buffer, or buffers were skipped (by a gate, for example): restart the stream from this buffer,
+			// holding its first sample for the history the filter needs
+			fresh = buffer.length;
+			Arrays.fill(input, 0, history, buffer[0]);
+			phase = 0;
+		}
+		System.arraycopy(buffer, buffer.length - fresh, input, history, fresh);
+
+		int end = history + fresh;
+		int first = history + phase;
+		int produced = first < end ? (end - first + factor - 1) / factor : 0;
+		phase = first + produced * factor - end;
+		if(produced > decimated.length) {
+			first += (produced - decimated.length) * factor;
+			produced = decimated.length;
+		}
+		System.arraycopy(decimated, produced, decimated, 0, decimated.length - produced);
+
+		int out = decimated.length - produced;
+		for(int at = first; at < end; at += factor) {
+			float sum = 0;
+			int start = at - history;
+			for(int k = 0; k < taps.length; k++) {
+				sum += taps[k] * input[start + k];
+			}
+			decimated[out++] = sum;
+		}
+		System.arraycopy(input, end - history, input, 0, history); // the history for the next buffer
+
+		handler.handlePitch(detector.getPitch(decimated), audioEvent);
+		return true;
+	}
+
+/**
+ * Standard AudioProcessor method; nothing needs to be released
+ */
+	@Override
+	public void processingFinished() {
+	}
+
+/**
+ * Basic get method for the int factor
+ * @return Number of input samples per analysed sample
+ */
+	public int getFactor() {
+		return factor;
+	}
+
+/**
+ * Finds how far the filter delays the signal
+ * @return The group delay of the low-pass filter in milliseconds
+ */
+	public double getDelayMillis() {
+		return (taps.length - 1) / 2.0 / sampleRate * 1000;
+	}
+}
@@ -0,0 +1,59 @@
+package client;
+
+import be.tarsos.dsp.AudioEvent;
+import be.tarsos.dsp.AudioProcessor;
+import be.tarsos.dsp.pitch.PitchDetectionHandler;
+import be.tarsos.dsp.pitch.PitchDetector;
+
+/**
+ * This class acts as a PitchProcessor for any PitchDetector, including ones TarsosDSP does not know about such as
+ * BlockedYin. Every buffer is passed to the detector and its result to the handler, exactly as PitchProcessor does.
+ * @author Jonathan Novins
+ * @version 1.0
+ */
+public class DetectorProcessor implements AudioProcessor {
+
+/**
+ * The detector every buffer is passed to
+ */
+	private final PitchDetector detector;
+
+/**
+ * The handler every result is passed to
+ */
+	private final PitchDetectionHandler handler;
+
+/**
+ * Constructs a DetectorProcessor
+ * @param detector The detector every buffer is passed to
+ * @param handler The handler every result is passed to
+ */
+	public DetectorProcessor(PitchDetector detector, PitchDetectionHandler handler) {
+		this.detector = detector;
+		this.handler = handler;
+	}
+
+/**
+ * Estimates the pitch of the buffer and passes the result to the handler
+ */
+	@Override
+	public boolean process(AudioEvent audioEvent) {
+		handler.handlePitch(detector.getPitch(audioEvent.getFloatBuffer()), audioEvent);
+		return true;
+	}
+
+/**
+ * Nothing to clean up
+ */
+	@Override
+	public void processingFinished() {
+	}
+
+/**
+ * Basic get method for the PitchDetector detector
+ * @return The detector every buffer is passed to
+ */
+	public PitchDetector getDetector() {
+		return detector;
+	}
+}
@@ -0,0 +1,305 @@
+package client;
+
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+import be.tarsos.dsp.AudioEvent;
+import be.tarsos.dsp.AudioProcessor;
+import be.tarsos.dsp.pitch.PitchDetectionHandler;
+import be.tarsos.dsp.pitch.PitchDetectionResult;
+import be.tarsos.dsp.pitch.PitchDetector;
+import be.tarsos.dsp.pitch.PitchProcessor.PitchEstimationAlgorithm;
+
+/**
+ * This class acts as a drop-in replacement for a PitchProcessor that runs several TarsosDSP estimators on every
+ * buffer and lets them vote. The first estimator runs on the audio thread as usual (YIN through BlockedYin) while the
+ * others run on their own worker threads, and the audio thread never waits for them: every buffer is voted on with the
+ * first estimator's result for that buffer and each worker's result for the buffer before it, which the worker had the
+ * whole hop to compute. Spare cores therefore buy accuracy while each buffer costs about what the first estimator
+ * alone costs. Estimators that agree within a quarter tone pool their probabilities, which outvotes the octave errors
+ * a single estimator makes on low strings. The price is that the workers' votes lag one hop behind, so for the first
+ * hop of a new note they still vote for the previous one. A worker that is still busy when the next buffer arrives
+ * neither votes nor receives that buffer, so one slow estimator can never hold up the pipeline. The workers outlive
+ * the dispatcher's processingFinished(), which TarsosDSP also calls whenever the processor is removed, so the processor
+ * can be taken out and put back; call shutdown() once it is no longer needed.
+ * @author Jonathan Novins
+ * @version 1.0
+ */
+public class EnsemblePitchProcessor implements AudioProcessor {
+
+/**
+ * The estimators used when none are given: YIN on the audio thread, MPM and FFT_YIN on workers
+ */
+	public static final PitchEstimationAlgorithm[] DEFAULT_ALGORITHMS = {PitchEstimationAlgorithm.YIN,
+			PitchEstimationAlgorithm.MPM, PitchEstimationAlgorithm.FFT_YIN};
+
+/**
+ * Results within this many cents of each other are counted as the same vote
+ */
+	private static final double AGREEMENT_CENTS = 50;
+
+/**
+ * One estimator with its own copy of the buffer; slot 0 runs on the audio thread, the rest on workers
+ */
+	private final Slot[] slots;
+
+/**
+ * The handler the winning result is passed to
+ */
+	private final PitchDetectionHandler handler;
+
+/**
+ * Reused for every result passed to the handler
+ */
+	private final PitchDetectionResult result = new PitchDetectionResult();
+
+/**
+ * Pitch and probability of every estimator for the buffer being voted on; a weight of 0 means no vote
+ */
+	private final float[] votePitches, voteWeights;
+
+/**
+ * Number of the buffer currently being estimated
+ */
+	private long frame;
+
+/**
+ * Set once shutdown() has been called and the workers should exit
+ */
+	private volatile boolean stopped;
+
+/**
+ * Number of buffers estimated, and number where the estimators did not all agree
+ */
+	private volatile long frames, disagreements;
+
+/**
+ * Constructs an EnsemblePitchProcessor using DEFAULT_ALGORITHMS
+ * @param sampleRate The sample rate in hz of the incoming audio
+ * @param bufferSize The size of the buffers the dispatcher delivers
+ * @param handler Receives the winning result for every buffer
+ */
+	public EnsemblePitchProcessor(float sampleRate, int bufferSize, PitchDetectionHandler handler) {
+		this(DEFAULT_ALGORITHMS, sampleRate, bufferSize, handler);
+	}
+
+/**
+ * Constructs an EnsemblePitchProcessor and starts one worker thread for every estimator after the first
+ * @param algorithms The estimators to run; the first one always runs on the audio thread and always takes part. YIN
+ * is run through BlockedYin wherever it appears.
+ * @param sampleRate The sample rate in hz of the incoming audio
+ * @param bufferSize The size of the buffers the dispatcher delivers
+ * @param handler Receives the winning result for every buffer
+ */
+	public EnsemblePitchProcessor(PitchEstimationAlgorithm[] algorithms, float sampleRate, int bufferSize,
+			PitchDetectionHandler handler) {
+		this.handler = handler;
+		slots = new Slot[algorithms.length];
+		votePitches = new float[algorithms.length];
+		voteWeights = new float[algorithms.length];
+		for(int i = 0; i < algorithms.length; i++) {
+			PitchDetector detector = algorithms[i] == PitchEstimationAlgorithm.YIN ? new BlockedYin(sampleRate, bufferSize)
+					: algorithms[i].getDetector(sampleRate, bufferSize);
+			slots[i] = new Slot(algorithms[i], detector, bufferSize);
+			if(i > 0) {
+				Thread worker = new Thread(slots[i], "pitch-ensemble-" + algorithms[i].name().toLowerCase(Locale.ROOT));
+				worker.setDaemon(true);
+				slots[i].worker = worker;
+				worker.start();
+			}
+		}
+	}
+
+/**
+ * Takes every idle worker's result for the previous buffer and hands it this one, runs the first estimator itself
+ * and passes the vote to the handler without waiting for any worker
+ */
+	@Override
+	public boolean process(AudioEvent audioEvent) {
+		float[] buffer = audioEvent.getFloatBuffer();
+		frame++;
+		int voters = 0;
+		for(int i = 1; i < slots.length; i++) {
+			Slot slot = slots[i];
+			if(slot.isBusy()) {
+				slot.skipped++; // still working on an older buffer: its result is not final and its copy is in use
+				votePitches[i] = -1;
+				voteWeights[i] = 0;
+				continue;
+			}
+			// idle, so its result cannot change until it is handed this buffer below
+			boolean voted = slot.voted(frame - 1);
+			votePitches[i] = voted ? slot.pitch : -1;
+			voteWeights[i] = voted ? slot.probability : 0;
+			if(voted) {
+				voters++;
+			}
+			System.arraycopy(buffer, 0, slot.buffer, 0, Math.min(buffer.length, slot.buffer.length));
+			slot.requestedFrame = frame;
+			LockSupport.unpark(slot.worker);
+		}
+
+		Slot first = slots[0];
+		first.estimate(buffer, frame);
+		boolean voted = first.voted(frame);
+		votePitches[0] = voted ? first.pitch : -1;
+		voteWeights[0] = voted ? first.probability : 0;
+		if(voted) {
+			voters++;
+		}
+
+		vote(voters);
+		frames++;
+		handler.handlePitch(result, audioEvent);
+		return true;
+	}
+
+/**
+ * Finds the pitch with the most probability behind it among the votes collected by process(), and stores the
+ * probability-weighted average of the votes that agree with it in result
+ * @param voters The number of estimators that voted
+ */
+	private void vote(int voters) {
+
+		int best = -1;
+		double bestWeight = 0;
+		for(int i = 0; i < slots.length; i++) {
+			if(voteWeights[i] <= 0) {
+				continue;
+			}
+			double weight = 0;
+			for(int j = 0; j < slots.length; j++) {
+				if(voteWeights[j] > 0 && agree(votePitches[i], votePitches[j])) {
+					weight += voteWeights[j];
+				}
+			}
+			if(weight > bestWeight) {
+				bestWeight = weight;
+				best = i;
+			}
+		}
+
+		if(best < 0) {
+			result.setPitch(-1);
+			result.setProbability(0);
+			result.setPitched(false);
+			return;
+		}
+		double weightedPitch = 0;
+		double weightedProbability = 0;
+		int agreeing = 0;
+		for(int j = 0; j < slots.length; j++) {
+			if(voteWeights[j] > 0 && agree(votePitches[best], votePitches[j])) {
+				weightedPitch += votePitches[j] * voteWeights[j];
+				weightedProbability += voteWeights[j] * voteWeights[j];
+				agreeing++;
+			}
+		}
+		if(agreeing < voters) {
+			disagreements++;
+		}
+		result.setPitch((float) (weightedPitch / bestWeight));
+		result.setProbability((float) (weightedProbability / bestWeight));
+		result.setPitched(true);
+	}
+
+/**
+ * Finds whether two pitches are close enough to count as the same vote
+ */
+	private static boolean agree(float a, float b) {
+		return Math.abs(1200 * Math.log(a / b) / Math.log(2)) <= AGREEMENT_CENTS;
+	}
+
+/**
+ * Keeps the worker threads running: the dispatcher also calls this when the processor is only being removed, and
+ * stopping the workers then would leave the ensemble voting with its first estimator alone once it is added back
+ */
+	@Override
+	public void processingFinished() {
+	}
+
+/**
+ * Stops the worker threads. The processor should not be used afterwards.
+ */
+	public void shutdown() {
+		stopped = true;
+		for(int i = 1; i < slots.length; i++) {
+			LockSupport.unpark(slots[i].worker);
+		}
+	}
+
+/**
+ * Builds a one-line summary of how often the estimators disagreed and how often each worker was still busy
+ * @return A String suitable for printing to the console
+ */
+	public String report() {
+		StringBuilder report = new StringBuilder();
+		long total = frames;
+		report.append(String.format("***PITCH ENSEMBLE: %d buffers, %.1f%% with disagreement", total,
+				total == 0 ? 0 : 100.0 * disagreements / total));
+		for(int i = 1; i < slots.length; i++) {
+			report.append(String.format(" | %s busy %d", slots[i].algorithm, slots[i].skipped));
+		}
+		return report.append("***").toString();
+	}
+
+/**
+ * One estimator, the buffer it works on and its latest result. The result fields are written before completedFrame,
+ * so anyone who reads completedFrame first sees the matching result.
+ */
+	private class Slot implements Runnable {
+		final PitchEstimationAlgorithm algorithm;
+		final PitchDetector detector;
+		final float[] buffer;
+		Thread worker;
+		volatile long requestedFrame;
+		volatile long completedFrame;
+		float pitch;
+		float probability;
+		volatile long skipped;
+
+		Slot(PitchEstimationAlgorithm algorithm, PitchDetector detector, int bufferSize) {
+			this.algorithm = algorithm;
+			this.detector = detector;
+			this.buffer = new float[bufferSize];
+		}
+
+		/**
+		 * Finds whether the worker is still estimating an earlier buffer
+		 */
+		boolean isBusy() {
+			return requestedFrame != completedFrame;
+		}
+
+		/**
+		 * Finds whether this estimator produced a pitched result for the received buffer
+		 */
+		boolean voted(long frameNumber) {
+			return completedFrame == frameNumber && pitch > 0 && probability > 0;
+		}
+
+		/**
+		 * Runs the estimator and publishes its result for the received buffer
+		 */
+		void estimate(float[] samples, long frameNumber) {
+			PitchDetectionResult estimate = detector.getPitch(samples);
+			pitch = estimate.isPitched() ? estimate.getPitch() : -1;
+			probability = estimate.isPitched() ? estimate.getProbability() : 0;
+			completedFrame = frameNumber;
+		}
+
+		/**
+		 * The worker loop: waits for a new buffer and estimates it
+		 */
+		@Override
+		public void run() {
+			while(!stopped) {
+				long requested = requestedFrame;
+				if(requested == completedFrame) {
+					LockSupport.park(this);
+					continue;
+				}
+				estimate(buffer, requested);
+			}
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package client;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import be.tarsos.dsp.AudioEvent;
+import be.tarsos.dsp.AudioProcessor;
+
+/**
+ * This class acts as a gate placed ahead of the pitch processor. While no tool is open (Sound.getSoundRun() is 0)
+ * it stops the processor chain for every buffer, so the microphone keeps being drained but YIN is never computed.
+ * Because the line is still being read, analysis resumes with the very next buffer once a tool opens. The gate also
+ * records how much CPU time the audio thread uses in each state so the saving can be reported.
+ * @author Jonathan Novins
+ * @version 1.0
+ */
+public class IdleGate implements AudioProcessor {
+
+/**
+ * Index into the accounting arrays for time spent while no tool was open
+ */
+	private static final int IDLE = 0;
+
+/**
+ * Index into the accounting arrays for time spent while a tool was open
+ */
+	private static final int ACTIVE = 1;
+
+/**
+ * The Sound Object whose soundRun toggle decides whether buffers pass
+ */
+	private final Sound sound;
+
+/**
+ * Used to read the CPU time of the audio thread
+ */
+	private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+/**
+ * Whether the JVM can measure the CPU time of the current thread
+ */
+	private final boolean cpuTimeSupported;
+
+/**
+ * CPU time used by the audio thread in each state, in nanoseconds
+ */
+	private final long[] cpuNanos = new long[2];
+
+/**
+ * Wall clock time spent in each state, in nanoseconds
+ */
+	private final long[] wallNanos = new long[2];
+
+/**
+ * Number of buffers seen in each state
+ */
+	private final long[] frames = new long[2];
+
+/**
+ * The state of the previous buffer; the time since then is charged to it
+ */
+	private int lastState = -1;
+
+/**
+ * Thread CPU time when the previous buffer arrived
+ */
+	private long lastCpuNanos;
+
+/**
+ * Wall clock time when the previous buffer arrived
+ */
+	private long lastWallNanos;
+
+/**
+ * Constructs an IdleGate driven by the received Sound Object
+ * @param sound The Sound Object whose soundRun toggle opens and closes the gate
+ */
+	public IdleGate(Sound sound) {
+		this.sound = sound;
+		cpuTimeSupported = threadBean.isCurrentThreadCpuTimeSupported();
+	}
+
+/**
+ * Lets the buffer through only while a tool is open. Returning false stops the rest of the processor chain.
+ */
+	@Override
+	public boolean process(AudioEvent audioEvent) {
+		int state = sound.getSoundRun() == 1 ? ACTIVE : IDLE;
+		long wall = System.nanoTime();
+		long cpu = cpuTimeSupported ? threadBean.getCurrentThreadCpuTime() : 0;
+		synchronized(this) {
+			if(lastState != -1) {
+				cpuNanos[lastState] += cpu - lastCpuNanos;
+				wallNanos[lastState] += wall - lastWallNanos;
+			}
+			frames[state]++;
+			lastState = state;
+			lastCpuNanos = cpu;
+			lastWallNanos = wall;
+		}
+		return state == ACTIVE;
+	}
+
+/**
+ * Standard AudioProcessor method; nothing needs to be released
+ */
+	@Override
+	public void processingFinished() {
+	}
+
+/**
+ * Builds a one-line summary of the audio thread's CPU use while idle and while a tool was open
+ * @return A String suitable for printing to the console
+ */
+	public synchronized String report() {
+		if(!cpuTimeSupported) {
+			return "***AUDIO CPU: THREAD CPU TIME NOT SUPPORTED BY THIS JVM***";
+		}
+		return String.format("***AUDIO CPU: idle %.1f%% of a core over %.1f s (%d buffers) | active %.1f%% of a core over %.1f s (%d buffers)***",
+				percent(IDLE), wallNanos[IDLE] / 1e9, frames[IDLE], percent(ACTIVE), wallNanos[ACTIVE] / 1e9, frames[ACTIVE]);
+	}
+
+/**
+ * Finds the share of one core the audio thread used in a state
+ */
+	private double percent(int state) {
+		return wallNanos[state] == 0 ? 0 : 100.0 * cpuNanos[state] / wallNanos[state];
+	}
+}
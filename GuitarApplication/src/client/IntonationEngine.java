@@ -0,0 +1,258 @@
+package client;
+
+import java.util.concurrent.Executor;
+import be.tarsos.dsp.AudioEvent;
+
+/**
+ * This class acts as the logic behind the intonation checking tool. It walks each string in turn through four states:
+ * waiting for the open string, open note captured, 12th fret note captured and verdict. The verdict is how far the
+ * fretted note is from exactly twice the open note, in cents. The engine is driven by its own TargetDetector, so it
+ * runs on the audio thread at full buffer rate, and every per-string value lives in a primitive array indexed by
+ * string. Only the state transitions are handed to the listener, through the executor given to the constructor
+ * (Platform::runLater for the user interface), so the window is never updated more often than a string changes state.
+ * @author Jonathan Novins
+ * @version 1.0
+ */
+public class IntonationEngine implements TargetDetector.TargetHandler {
+
+/**
+ * Listener notified whenever a string changes state
+ */
+	public interface IntonationListener {
+		/**
+		 * Receives a state transition
+		 * @param string The string that changed state, 0 being low E
+		 * @param state WAITING, OPEN_CAPTURED, FRET_CAPTURED or VERDICT
+		 * @param cents For OPEN_CAPTURED, how far the open string is from its standard pitch; for VERDICT, how far
+		 * the 12th fret is from the octave (positive is sharp); otherwise NaN
+		 */
+		void stateChanged(int string, int state, float cents);
+	}
+
+/**
+ * The string is waiting for its open note to ring steadily
+ */
+	public static final int WAITING = 0;
+
+/**
+ * The open note has been captured; waiting for the note fretted at the 12th
+ */
+	public static final int OPEN_CAPTURED = 1;
+
+/**
+ * The 12th fret note has been captured
+ */
+	public static final int FRET_CAPTURED = 2;
+
+/**
+ * The string's octave deviation has been measured
+ */
+	public static final int VERDICT = 3;
+
+/**
+ * Number of strings that are checked
+ */
+	public static final int STRINGS = 6;
+
+/**
+ * An octave within this many cents of perfect is considered correctly intonated
+ */
+	public static final float TOLERANCE_CENTS = 3;
+
+/**
+ * Number of consecutive agreeing buffers needed before a note is captured
+ */
+	private static final int STABLE_FRAMES = 8;
+
+/**
+ * How far, in cents, a buffer may be from the running average and still count as agreeing
+ */
+	private static final double STABLE_CENTS = 4;
+
+/**
+ * Current state of every string. Only written on the audio thread, or by start() while detached.
+ */
+	private final int[] states = new int[STRINGS];
+
+/**
+ * Captured open frequency of every string in hz
+ */
+	private final float[] openFrequencies = new float[STRINGS];
+
+/**
+ * Captured 12th fret frequency of every string in hz
+ */
+	private final float[] fretFrequencies = new float[STRINGS];
+
+/**
+ * Octave deviation of every string in cents, set once it reaches VERDICT
+ */
+	private final float[] verdicts = new float[STRINGS];
+
+/**
+ * Standard open frequency of every string in hz
+ */
+	private final double[] targets = new double[STRINGS];
+
+/**
+ * The detector feeding this engine; it is what gets attached to the dispatcher
+ */
+	private final TargetDetector detector;
+
+/**
+ * The Sound Object that the captured notes and string statuses are mirrored to
+ */
+	private final Sound sound;
+
+/**
+ * Runs listener notifications, normally on the JavaFX thread
+ */
+	private final Executor notifier;
+
+/**
+ * The listener state transitions are passed to, or null
+ */
+	private volatile IntonationListener listener;
+
+/**
+ * The string currently being checked; STRINGS once every string has a verdict
+ */
+	private int currentString;
+
+/**
+ * Number of consecutive agreeing buffers seen for the note being captured
+ */
+	private int stableCount;
+
+/**
+ * Sum of the agreeing frequencies, used for their average
+ */
+	private double stableSum;
+
+/**
+ * Constructs an IntonationEngine for standard tuning
+ * @param sound The Sound Object that captured notes and string statuses are mirrored to
+ * @param noteTable The table the string targets are taken from
+ * @param sampleRate The sample rate in hz of the incoming audio
+ * @param notifier Runs listener notifications; pass Platform::runLater to receive them on the JavaFX thread
+ */
+	public IntonationEngine(Sound sound, NoteTable noteTable, float sampleRate, Executor notifier) {
+		this.sound = sound;
+		this.notifier = notifier;
+		for(int s = 0; s < STRINGS; s++) {
+			targets[s] = noteTable.getFrequency(NoteTable.STANDARD_TUNING[s]);
+		}
+		detector = new TargetDetector(sampleRate, targets[0], this);
+	}
+
+/**
+ * Basic get method for the TargetDetector that drives this engine
+ * @return The AudioProcessor that should be attached to the dispatcher while the intonation tool is open
+ */
+	public TargetDetector getDetector() {
+		return detector;
+	}
+
+/**
+ * Puts every string back to WAITING and starts again from low E. Should only be called while the detector is not
+ * attached to a running dispatcher.
+ * @param listener Receives every state transition from now on; may be null
+ */
+	public void start(IntonationListener listener) {
+		this.listener = listener;
+		for(int s = 0; s < STRINGS; s++) {
+			states[s] = WAITING;
+			openFrequencies[s] = -1;
+			fretFrequencies[s] = -1;
+			verdicts[s] = Float.NaN;
+			sound.setStringStatus(s, WAITING);
+		}
+		currentString = 0;
+		stableCount = 0;
+		stableSum = 0;
+		sound.setOpenNote(-1);
+		sound.setHarmonicNote(-1);
+		detector.setTarget(targets[0]);
+	}
+
+/**
+ * Advances the current string using the detector's latest measurement. Called on the audio thread for every buffer.
+ */
+	@Override
+	public void handleTarget(TargetDetector detector, AudioEvent audioEvent) {
+		if(currentString >= STRINGS) {
+			return;
+		}
+		int s = currentString;
+		double fundamental = detector.getFundamental();
+		double octave = detector.getOctave();
+
+		if(states[s] == WAITING) {
+			if(track(fundamental)) {
+				openFrequencies[s] = (float) (stableSum / stableCount);
+				sound.setOpenNote(openFrequencies[s]);
+				transition(s, OPEN_CAPTURED, (float) cents(openFrequencies[s], targets[s]));
+				resetTracking();
+			}
+		}
+		else if(states[s] == OPEN_CAPTURED) {
+			// while the open string is still ringing its fundamental is present; a note fretted at the 12th has none
+			if(track(Double.isNaN(fundamental) ? octave : Double.NaN)) {
+				fretFrequencies[s] = (float) (stableSum / stableCount);
+				sound.setHarmonicNote(fretFrequencies[s]);
+				transition(s, FRET_CAPTURED, Float.NaN);
+				verdicts[s] = (float) cents(fretFrequencies[s], 2.0 * openFrequencies[s]);
+				transition(s, VERDICT, verdicts[s]);
+				resetTracking();
+				currentString++;
+				if(currentString < STRINGS) {
+					detector.setTarget(targets[currentString]);
+				}
+			}
+		}
+	}
+
+/**
+ * Adds a reading to the running average of the note being captured
+ * @return true once STABLE_FRAMES consecutive readings have agreed
+ */
+	private boolean track(double frequency) {
+		if(Double.isNaN(frequency)) {
+			resetTracking();
+			return false;
+		}
+		if(stableCount > 0 && Math.abs(cents(frequency, stableSum / stableCount)) > STABLE_CENTS) {
+			resetTracking();
+		}
+		stableSum += frequency;
+		stableCount++;
+		return stableCount >= STABLE_FRAMES;
+	}
+
+/**
+ * Forgets the readings of the note being captured
+ */
+	private void resetTracking() {
+		stableCount = 0;
+		stableSum = 0;
+	}
+
+/**
+ * Records a state change, mirrors it to Sound and hands it to the listener
+ */
+	private void transition(int string, int state, float cents) {
+		states[string] = state;
+		sound.setStringStatus(string, state);
+		IntonationListener current = listener;
+		if(current != null) {
+			notifier.execute(() -> current.stateChanged(string, state, cents));
+		}
+	}
+
+/**
+ * Finds the distance between two frequencies in cents
+ */
+	private static double cents(double frequency, double reference) {
+		return 1200 * Math.log(frequency / reference) / Math.log(2);
+	}
+}
@@ -0,0 +1,329 @@
+package client;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import be.tarsos.dsp.io.TarsosDSPAudioFormat;
+import be.tarsos.dsp.io.TarsosDSPAudioInputStream;
+
+/**
+ * This class feeds 16 or 24-bit PCM recordings to an AudioDispatcher straight from a memory-mapped file. Samples are
+ * copied once, from the mapped pages into the byte buffer the dispatcher converts to floats, with no stream layers
+ * or intermediate buffers in between. The file is mapped in fixed-size windows, so heap use stays the same no matter
+ * how long the recording is, and seek() can jump to any time stamp instantly. Multi-channel recordings are mixed down
+ * to mono while they are copied, since the pitch pipeline only works on one channel.
+ * @author Jonathan Novins
+ * @version 1.0
+ */
+public class MappedPcmInputStream implements TarsosDSPAudioInputStream {
+
+/**
+ * The largest region of the file that is mapped at once
+ */
+	private static final long MAP_WINDOW = 64L * 1024 * 1024;
+
+/**
+ * The open channel of the recording
+ */
+	private final FileChannel channel;
+
+/**
+ * Byte offset of the first sample in the file
+ */
+	private final long dataStart;
+
+/**
+ * Number of sample bytes in the file
+ */
+	private final long dataLength;
+
+/**
+ * Number of interleaved channels in the file
+ */
+	private final int channels;
+
+/**
+ * Number of bytes in a single sample of a single channel (2 or 3)
+ */
+	private final int bytesPerSample;
+
+/**
+ * Number of bytes in one frame of the file (one sample for every channel)
+ */
+	private final int sourceFrameSize;
+
+/**
+ * The sample rate of the recording in hz
+ */
+	private final float sampleRate;
+
+/**
+ * The mono format handed to the dispatcher
+ */
+	private final TarsosDSPAudioFormat format;
+
+/**
+ * Size of each mapped window; a whole number of frames so no frame is ever split between two windows
+ */
+	private final long windowSize;
+
+/**
+ * The currently mapped window, or null before the first read
+ */
+	private MappedByteBuffer window;
+
+/**
+ * Offset of the current window from dataStart
+ */
+	private long windowStart;
+
+/**
+ * Read position as an offset from dataStart; always on a frame boundary
+ */
+	private long position;
+
+/**
+ * Opens a headerless raw PCM recording (signed, little-endian)
+ * @param file The recording to open
+ * @param sampleRate The sample rate of the recording in hz
+ * @param bitsPerSample 16 or 24
+ * @param channels The number of interleaved channels
+ * @throws IOException if the file cannot be opened
+ * @throws UnsupportedAudioFileException if the sample size is not 16 or 24 bits
+ */
+	public MappedPcmInputStream(File file, float sampleRate, int bitsPerSample, int channels)
+			throws IOException, UnsupportedAudioFileException {
+		this(openChannel(file), 0, -1, sampleRate, bitsPerSample, channels);
+	}
+
+/**
+ * Constructs a stream over a region of an already opened channel
+ */
+	private MappedPcmInputStream(FileChannel channel, long dataStart, long dataLength, float sampleRate, int bitsPerSample,
+			int channels) throws IOException, UnsupportedAudioFileException {
+		if(bitsPerSample != 16 && bitsPerSample != 24) {
+			channel.close();
+			throw new UnsupportedAudioFileException("Only 16 and 24-bit PCM can be mapped, not " + bitsPerSample + "-bit");
+		}
+		if(channels < 1) {
+			channel.close();
+			throw new UnsupportedAudioFileException("Invalid channel count " + channels);
+		}
+		this.channel = channel;
+		this.dataStart = dataStart;
+		this.sampleRate = sampleRate;
+		this.channels = channels;
+		this.bytesPerSample = bitsPerSample / 8;
+		this.sourceFrameSize = bytesPerSample * channels;
+		long available = channel.size() - dataStart;
+		long length = dataLength < 0 || dataLength > available ? available : dataLength;
+		this.dataLength = length - length % sourceFrameSize;
+		this.windowSize = MAP_WINDOW - MAP_WINDOW % sourceFrameSize;
+		this.format = new TarsosDSPAudioFormat(sampleRate, bitsPerSample, 1, true, false);
+	}
+
+/**
+ * Opens a WAV recording, reading its sample format and the location of its samples from the header
+ * @param file The WAV file to open
+ * @return A stream positioned at the first sample
+ * @throws IOException if the file cannot be read
+ * @throws UnsupportedAudioFileException if the file is not an uncompressed 16 or 24-bit PCM WAV
+ */
+	public static MappedPcmInputStream openWav(File file) throws IOException, UnsupportedAudioFileException {
+		FileChannel channel = openChannel(file);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, header, 0);
+			if(header.getInt(0) != 0x46464952 || header.getInt(8) != 0x45564157) { // "RIFF" ... "WAVE"
+				throw new UnsupportedAudioFileException(file.getName() + " is not a RIFF/WAVE file");
+			}
+
+			int channels = -1;
+			int bits = -1;
+			float rate = -1;
+			long offset = 12;
+			ByteBuffer chunk = ByteBuffer.allocate(40).order(ByteOrder.LITTLE_ENDIAN);
+			while(offset + 8 <= channel.size()) {
+				chunk.clear().limit(8);
+				readFully(channel, chunk, offset);
+				int id = chunk.getInt(0);
+				long size = chunk.getInt(4) & 0xFFFFFFFFL;
+				if(id == 0x20746D66) { // "fmt "
+					chunk.clear().limit((int) Math.min(size, chunk.capacity()));
+					readFully(channel, chunk, offset + 8);
+					int encoding = chunk.getShort(0) & 0xFFFF;
+					if(encoding == 0xFFFE && size >= 26) { // WAVE_FORMAT_EXTENSIBLE; the sub-format follows the extension size
+						encoding = chunk.getShort(24) & 0xFFFF;
+					}
+					if(encoding != 1) {
+						throw new UnsupportedAudioFileException(file.getName() + " is not uncompressed PCM");
+					}
+					channels = chunk.getShort(2);
+					rate = chunk.getInt(4);
+					bits = chunk.getShort(14);
+				}
+				else if(id == 0x61746164) { // "data"
+					if(channels < 0) {
+						throw new UnsupportedAudioFileException(file.getName() + " has no fmt chunk before its data");
+					}
+					// a size of 0 or 0xFFFFFFFF comes from recorders that never went back to fill it in
+					long dataLength = size == 0 || size == 0xFFFFFFFFL ? -1 : size;
+					return new MappedPcmInputStream(channel, offset + 8, dataLength, rate, bits, channels);
+				}
+				offset += 8 + size + (size & 1);
+			}
+			throw new UnsupportedAudioFileException(file.getName() + " has no data chunk");
+		}
+		catch(IOException | UnsupportedAudioFileException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+/**
+ * Opens a read-only channel on a file
+ */
+	private static FileChannel openChannel(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		return raf.getChannel();
+	}
+
+/**
+ * Fills a buffer from an absolute position in a channel
+ */
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while(buffer.hasRemaining()) {
+			int read = channel.read(buffer, position + buffer.position());
+			if(read < 0) {
+				throw new IOException("Unexpected end of file");
+			}
+		}
+	}
+
+/**
+ * Copies whole mono frames into the received buffer, mixing channels down if the recording has more than one.
+ * @return The number of bytes copied, or -1 once the end of the recording is reached
+ */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		long remaining = (dataLength - position) / sourceFrameSize;
+		if(remaining <= 0) {
+			return -1;
+		}
+		int frames = (int) Math.min(len / bytesPerSample, remaining);
+		int written = 0;
+		while(frames > 0) {
+			mapWindowAt(position);
+			int relative = (int) (position - windowStart);
+			int count = Math.min(frames, (window.limit() - relative) / sourceFrameSize);
+			if(channels == 1) {
+				window.position(relative);
+				window.get(b, off + written, count * bytesPerSample);
+			}
+			else {
+				mixDown(relative, count, b, off + written);
+			}
+			position += (long) count * sourceFrameSize;
+			written += count * bytesPerSample;
+			frames -= count;
+		}
+		return written;
+	}
+
+/**
+ * Averages the channels of consecutive frames in the current window and writes the mono result
+ */
+	private void mixDown(int relative, int count, byte[] b, int off) {
+		for(int frame = 0; frame < count; frame++) {
+			int base = relative + frame * sourceFrameSize;
+			long sum = 0;
+			for(int c = 0; c < channels; c++) {
+				sum += sampleAt(base + c * bytesPerSample);
+			}
+			int mixed = (int) (sum / channels);
+			int out = off + frame * bytesPerSample;
+			b[out] = (byte) mixed;
+			b[out + 1] = (byte) (mixed >> 8);
+			if(bytesPerSample == 3) {
+				b[out + 2] = (byte) (mixed >> 16);
+			}
+		}
+	}
+
+/**
+ * Decodes one signed little-endian sample from the current window
+ */
+	private int sampleAt(int index) {
+		if(bytesPerSample == 2) {
+			return (window.get(index + 1) << 8) | (window.get(index) & 0xFF);
+		}
+		return (window.get(index + 2) << 16) | ((window.get(index + 1) & 0xFF) << 8) | (window.get(index) & 0xFF);
+	}
+
+/**
+ * Makes sure the window containing the received position is the one currently mapped
+ */
+	private void mapWindowAt(long offset) throws IOException {
+		if(window != null && offset >= windowStart && offset < windowStart + window.limit()) {
+			return;
+		}
+		windowStart = offset - offset % windowSize;
+		long size = Math.min(windowSize, dataLength - windowStart);
+		window = channel.map(FileChannel.MapMode.READ_ONLY, dataStart + windowStart, size);
+	}
+
+/**
+ * Moves the read position to a time stamp in the recording
+ * @param seconds The time stamp to continue reading from; clamped to the length of the recording
+ */
+	public void seek(double seconds) {
+		long frame = (long) (seconds * sampleRate);
+		long frames = dataLength / sourceFrameSize;
+		position = Math.max(0, Math.min(frame, frames)) * sourceFrameSize;
+	}
+
+/**
+ * Skips forward by a number of mono output bytes
+ * @return The number of bytes actually skipped
+ */
+	@Override
+	public long skip(long bytesToSkip) throws IOException {
+		long frames = Math.min(bytesToSkip / bytesPerSample, (dataLength - position) / sourceFrameSize);
+		if(frames <= 0) {
+			return 0;
+		}
+		position += frames * sourceFrameSize;
+		return frames * bytesPerSample;
+	}
+
+/**
+ * Releases the file. The current window is simply dropped; the JVM unmaps it once it is collected.
+ */
+	@Override
+	public void close() throws IOException {
+		window = null;
+		channel.close();
+	}
+
+/**
+ * Basic get method for the mono TarsosDSPAudioFormat handed to the dispatcher
+ */
+	@Override
+	public TarsosDSPAudioFormat getFormat() {
+		return format;
+	}
+
+/**
+ * Finds the length of the recording
+ * @return The number of frames in the recording
+ */
+	@Override
+	public long getFrameLength() {
+		return dataLength / sourceFrameSize;
+	}
+}
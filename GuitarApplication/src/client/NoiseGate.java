@@ -0,0 +1,193 @@
+package client;
+
+import be.tarsos.dsp.AudioEvent;
+import be.tarsos.dsp.AudioProcessor;
+
+/**
+ * This class acts as a cheap energy check placed ahead of the pitch processor. It computes the RMS and peak of every
+ * buffer and stops the processor chain for buffers that are quieter than an adaptive noise floor, so pitch estimation
+ * is skipped entirely during the silence between notes. Opening needs more energy than staying open, and the gate is
+ * held open for a few buffers after the signal drops, which stops it from chattering on a decaying note.
+ * @author Jonathan Novins
+ * @version 1.0
+ */
+public class NoiseGate implements AudioProcessor {
+
+/**
+ * The RMS a buffer must exceed, as a multiple of the noise floor, for a closed gate to open (about +12dB)
+ */
+	private static final double OPEN_RATIO = 4.0;
+
+/**
+ * The RMS a buffer must stay above, as a multiple of the noise floor, to keep an open gate open (about +6dB)
+ */
+	private static final double CLOSE_RATIO = 2.0;
+
+/**
+ * Absolute RMS that must be exceeded to open the gate no matter how low the noise floor gets (about -60dBFS)
+ */
+	private static final double MIN_OPEN_RMS = 0.001;
+
+/**
+ * Lowest value the noise floor is allowed to fall to (about -90dBFS)
+ */
+	private static final double MIN_FLOOR = 0.00003;
+
+/**
+ * How quickly the noise floor falls towards a quieter buffer
+ */
+	private static final double FLOOR_FALL = 0.5;
+
+/**
+ * How quickly the noise floor rises towards a louder buffer while the gate is closed
+ */
+	private static final double FLOOR_RISE = 0.01;
+
+/**
+ * Number of consecutive quiet buffers needed before an open gate closes
+ */
+	private static final int HOLD_FRAMES = 4;
+
+/**
+ * Current estimate of the background noise RMS
+ */
+	private double noiseFloor = MIN_FLOOR;
+
+/**
+ * Whether buffers are currently being passed on to the pitch processor
+ */
+	private boolean open;
+
+/**
+ * Number of consecutive buffers that have been below the close threshold while open
+ */
+	private int quietFrames;
+
+/**
+ * RMS of the most recent buffer
+ */
+	private volatile double lastRms;
+
+/**
+ * Peak absolute sample of the most recent buffer
+ */
+	private volatile float lastPeak;
+
+/**
+ * Number of buffers that were stopped by the gate
+ */
+	private volatile long gatedFrames;
+
+/**
+ * Number of buffers that were passed on to the pitch processor
+ */
+	private volatile long passedFrames;
+
+/**
+ * Measures the buffer and decides whether it should reach the pitch processor. Returning false stops the rest of
+ * the processor chain.
+ */
+	@Override
+	public boolean process(AudioEvent audioEvent) {
+		float[] buffer = audioEvent.getFloatBuffer();
+		double sumSquares = 0;
+		float peak = 0;
+		for(int i = 0; i < buffer.length; i++) {
+			float sample = buffer[i];
+			sumSquares += sample * sample;
+			float magnitude = Math.abs(sample);
+			if(magnitude > peak) {
+				peak = magnitude;
+			}
+		}
+		double rms = Math.sqrt(sumSquares / buffer.length);
+		lastRms = rms;
+		lastPeak = peak;
+
+		if(open) {
+			if(rms < noiseFloor * CLOSE_RATIO) {
+				quietFrames++;
+				if(quietFrames >= HOLD_FRAMES) {
+					open = false;
+				}
+			}
+			else {
+				quietFrames = 0;
+			}
+		}
+		else if(rms > noiseFloor * OPEN_RATIO && rms > MIN_OPEN_RMS) {
+			open = true;
+			quietFrames = 0;
+		}
+
+		// the floor follows quiet buffers quickly, but only creeps upwards while nothing is being played
+		if(rms < noiseFloor) {
+			noiseFloor += (rms - noiseFloor) * FLOOR_FALL;
+		}
+		else if(!open) {
+			noiseFloor += (rms - noiseFloor) * FLOOR_RISE;
+		}
+		if(noiseFloor < MIN_FLOOR) {
+			noiseFloor = MIN_FLOOR;
+		}
+
+		if(open) {
+			passedFrames++;
+		}
+		else {
+			gatedFrames++;
+		}
+		return open;
+	}
+
+/**
+ * Standard AudioProcessor method; nothing needs to be released
+ */
+	@Override
+	public void processingFinished() {
+	}
+
+/**
+ * Basic get method for the long gatedFrames
+ * @return The number of buffers that were stopped by the gate
+ */
+	public long getGatedFrames() {
+		return gatedFrames;
+	}
+
+/**
+ * Basic get method for the long passedFrames
+ * @return The number of buffers that were passed on to the pitch processor
+ */
+	public long getPassedFrames() {
+		return passedFrames;
+	}
+
+/**
+ * Basic get method for the double lastRms
+ * @return The RMS of the most recent buffer
+ */
+	public double getLastRms() {
+		return lastRms;
+	}
+
+/**
+ * Basic get method for the float lastPeak
+ * @return The peak absolute sample of the most recent buffer
+ */
+	public float getLastPeak() {
+		return lastPeak;
+	}
+
+/**
+ * Builds a one-line summary of how many buffers the gate has skipped
+ * @return A String suitable for printing to the console
+ */
+	public String report() {
+		long gated = gatedFrames;
+		long passed = passedFrames;
+		long total = gated + passed;
+		return String.format("***NOISE GATE: %d of %d buffers gated (%.1f%%), noise floor %.1f dBFS***", gated, total,
+				total == 0 ? 0 : 100.0 * gated / total, 20 * Math.log10(noiseFloor));
+	}
+}
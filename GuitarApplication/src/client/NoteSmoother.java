@@ -0,0 +1,192 @@
+package client;
+
+/**
+ * This class acts as a smoothing stage between the pitch detector and the values published to Sound. Frequencies go
+ * through a running median of the last few frames, which throws away single-frame octave jumps and jitter, and the
+ * nearest note only changes once the median is clearly past the boundary between two notes rather than as soon as
+ * it touches it. update() reports whether anything a display would show has changed, so consumers only receive a
+ * new value when the note changes or the cents reading moves by a whole step. Everything is kept in primitive
+ * arrays that are allocated once; the class is meant to be used from the audio thread only.
+ * @author Jonathan Novins
+ * @version 1.0
+ */
+public class NoteSmoother {
+
+/**
+ * Number of frames the median is taken over
+ */
+	private static final int MEDIAN_FRAMES = 5;
+
+/**
+ * How far past the halfway point between two notes, in cents, the median must go before the note changes
+ */
+	private static final double HYSTERESIS_CENTS = 15;
+
+/**
+ * Smallest change in cents that is worth publishing while the note stays the same
+ */
+	private static final double PUBLISH_CENTS = 1;
+
+/**
+ * A gap between frames longer than this, in seconds, means a new note was played and the history is discarded
+ */
+	private static final double GAP_SECONDS = 0.25;
+
+/**
+ * The table nearest-note and cents lookups are served from
+ */
+	private final NoteTable noteTable;
+
+/**
+ * Circular history of the most recent frequencies
+ */
+	private final float[] history = new float[MEDIAN_FRAMES];
+
+/**
+ * The valid part of history copied and sorted to find the median
+ */
+	private final float[] sorted = new float[MEDIAN_FRAMES];
+
+/**
+ * Index in history where the next frequency will be written
+ */
+	private int writeIndex;
+
+/**
+ * Number of valid frequencies in history
+ */
+	private int count;
+
+/**
+ * Time stamp of the previous frame in seconds
+ */
+	private double lastTimeStamp = Double.NEGATIVE_INFINITY;
+
+/**
+ * The current median frequency in hz
+ */
+	private float frequency = -1;
+
+/**
+ * The note currently being reported, or -1 before the first frame
+ */
+	private int nearestIndex = -1;
+
+/**
+ * How far the median is from the reported note, in cents
+ */
+	private float cents;
+
+/**
+ * The cents value that was last reported as changed
+ */
+	private float publishedCents;
+
+/**
+ * Number of frames received and number of them that produced a change
+ */
+	private volatile long framesIn, framesOut;
+
+/**
+ * Constructs a NoteSmoother
+ * @param noteTable The table nearest-note and cents lookups are served from
+ */
+	public NoteSmoother(NoteTable noteTable) {
+		this.noteTable = noteTable;
+	}
+
+/**
+ * Adds a detected frequency and updates the smoothed note
+ * @param detected The frequency in hz reported by the pitch detector
+ * @param timeStamp The audio time stamp of the frame in seconds
+ * @return true if the reported note or its cents reading changed enough to be worth publishing
+ */
+	public boolean update(float detected, double timeStamp) {
+		framesIn++;
+		if(timeStamp - lastTimeStamp > GAP_SECONDS || timeStamp < lastTimeStamp) {
+			count = 0;
+			nearestIndex = -1; // a fresh note is reported straight away rather than held by the hysteresis
+		}
+		lastTimeStamp = timeStamp;
+
+		history[writeIndex] = detected;
+		writeIndex = (writeIndex + 1) % MEDIAN_FRAMES;
+		if(count < MEDIAN_FRAMES) {
+			count++;
+		}
+		frequency = median();
+
+		boolean noteChanged = false;
+		if(nearestIndex < 0) {
+			nearestIndex = noteTable.nearestIndex(frequency);
+			noteChanged = true;
+		}
+		else if(Math.abs(noteTable.cents(frequency, nearestIndex)) > 50 + HYSTERESIS_CENTS) {
+			int candidate = noteTable.nearestIndex(frequency);
+			noteChanged = candidate != nearestIndex;
+			nearestIndex = candidate;
+		}
+		cents = (float) noteTable.cents(frequency, nearestIndex);
+
+		if(noteChanged || Math.abs(cents - publishedCents) >= PUBLISH_CENTS) {
+			publishedCents = cents;
+			framesOut++;
+			return true;
+		}
+		return false;
+	}
+
+/**
+ * Finds the median of the valid part of history with an insertion sort, which is the fastest option for a handful
+ * of values
+ */
+	private float median() {
+		for(int i = 0; i < count; i++) {
+			float value = history[(writeIndex - 1 - i + MEDIAN_FRAMES) % MEDIAN_FRAMES];
+			int j = i - 1;
+			while(j >= 0 && sorted[j] > value) {
+				sorted[j + 1] = sorted[j];
+				j--;
+			}
+			sorted[j + 1] = value;
+		}
+		if((count & 1) == 1) {
+			return sorted[count / 2];
+		}
+		return (sorted[count / 2 - 1] + sorted[count / 2]) / 2;
+	}
+
+/**
+ * Basic get method for the float frequency
+ * @return The median of the most recent frequencies in hz
+ */
+	public float getFrequency() {
+		return frequency;
+	}
+
+/**
+ * Basic get method for the int nearestIndex
+ * @return The index in the NoteTable of the note currently reported
+ */
+	public int getNearestIndex() {
+		return nearestIndex;
+	}
+
+/**
+ * Basic get method for the float cents
+ * @return How far the median frequency is from the reported note, in cents
+ */
+	public float getCents() {
+		return cents;
+	}
+
+/**
+ * Builds a one-line summary of how many frames were turned into published updates
+ * @return A String suitable for printing to the console
+ */
+	public String report() {
+		long in = framesIn;
+		long out = framesOut;
+		return String.format("***NOTE SMOOTHER: %d of %d frames published (%.1f%%)***", out, in, in == 0 ? 0 : 100.0 * out / in);
+	}
+}
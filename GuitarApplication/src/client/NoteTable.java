@@ -0,0 +1,184 @@
+package client;
+
+/**
+ * This class acts as the equal-temperament note table that is used for all nearest-note and cents lookups. Rather
+ * than scanning a hand-typed list of frequencies, the note index is computed directly from 12*log2(f/A4) so every
+ * lookup takes constant time. All frequencies and note names are computed once into primitive arrays when the
+ * table is constructed.
+ * @author Jonathan Novins
+ * @version 1.0
+ */
+public class NoteTable {
+
+/**
+ * Number of notes held in the table. The table spans D#2 through D6, the same range the tuner has always covered.
+ */
+	public static final int NOTE_COUNT = 48;
+
+/**
+ * MIDI number of the lowest note held in the table (D#2)
+ */
+	public static final int LOWEST_MIDI = 39;
+
+/**
+ * Indices of the six open strings in standard tuning, low E (E2) to high E (E4)
+ */
+	public static final int[] STANDARD_TUNING = new int[] {1, 6, 11, 16, 20, 25};
+
+/**
+ * MIDI number of the reference pitch A4
+ */
+	private static final int A4_MIDI = 69;
+
+/**
+ * Multiplier that converts a natural log into a base-2 log
+ */
+	private static final double INV_LN2 = 1.0 / Math.log(2.0);
+
+/**
+ * Letter-note names of a single octave, beginning at C
+ */
+	private static final String[] OCTAVE_NAMES = new String[] {"C","C#","D","D#","E","F","F#","G","G#","A","A#","B"};
+
+/**
+ * The frequency in hz that A4 is tuned to when building the table
+ */
+	private final double referencePitch;
+
+/**
+ * Exact equal-temperament frequency of every note in the table, lowest first
+ */
+	private final double[] frequencies;
+
+/**
+ * Letter-note name of every note in the table; runs parallel to frequencies
+ */
+	private final String[] noteNames;
+
+/**
+ * Constructs a NoteTable using standard concert pitch (A4 = 440hz)
+ */
+	public NoteTable() {
+		this(440.0);
+	}
+
+/**
+ * Constructs a NoteTable tuned to the received reference pitch
+ * @param referencePitch The frequency in hz that A4 should be tuned to (440 for concert pitch)
+ */
+	public NoteTable(double referencePitch) {
+		if(referencePitch <= 0) {
+			throw new IllegalArgumentException("Reference pitch must be positive: " + referencePitch);
+		}
+		this.referencePitch = referencePitch;
+		frequencies = new double[NOTE_COUNT];
+		noteNames = new String[NOTE_COUNT];
+
+		for(int i = 0; i < NOTE_COUNT; i++) {
+			int midi = LOWEST_MIDI + i;
+			frequencies[i] = referencePitch * Math.pow(2.0, (midi - A4_MIDI) / 12.0);
+			noteNames[i] = OCTAVE_NAMES[midi % 12];
+		}
+	}
+
+/**
+ * Finds the (fractional) number of semitones between the received frequency and the reference pitch
+ * @param freq The frequency in hz to be measured
+ * @return 12*log2(freq/A4); positive when freq is above A4 and negative when below
+ */
+	public double semitonesFromReference(double freq) {
+		return 12.0 * Math.log(freq / referencePitch) * INV_LN2;
+	}
+
+/**
+ * Finds the index of the note closest to the received frequency. Frequencies outside of the table's range are
+ * clamped to the first or last note, and a frequency that is zero, negative or NaN counts as below the range.
+ * @param freq The frequency in hz to be looked up
+ * @return The index of the nearest note, or 0 for a frequency that is not positive; usable with getFrequency() and
+ * getNoteName()
+ */
+	public int nearestIndex(double freq) {
+		if(!(freq > 0)) {
+			return 0; // the logarithm below is -Infinity or NaN, which would round to A4
+		}
+		// rounded half up like Math.round, but clamped before the cast to int, which would overflow for an infinite freq
+		double index = Math.floor(semitonesFromReference(freq) + 0.5) + A4_MIDI - LOWEST_MIDI;
+		if(index < 0) {
+			return 0;
+		}
+		if(index >= NOTE_COUNT) {
+			return NOTE_COUNT - 1;
+		}
+		return (int) index;
+	}
+
+/**
+ * Finds how far the received frequency is from the note at the given index
+ * @param freq The frequency in hz to be measured
+ * @param index The index of the note the frequency should be compared to
+ * @return The deviation in cents; positive when sharp and negative when flat
+ */
+	public double cents(double freq, int index) {
+		return 1200.0 * Math.log(freq / frequencies[index]) * INV_LN2;
+	}
+
+/**
+ * Finds how far the received frequency is from its nearest note
+ * @param freq The frequency in hz to be measured
+ * @return The deviation in cents from the nearest note; positive when sharp and negative when flat
+ */
+	public double cents(double freq) {
+		return cents(freq, nearestIndex(freq));
+	}
+
+/**
+ * Basic get method for the frequency of a single note
+ * @param index The index of the desired note
+ * @return The exact equal-temperament frequency of that note in hz
+ */
+	public double getFrequency(int index) {
+		return frequencies[index];
+	}
+
+/**
+ * Basic get method for the name of a single note
+ * @param index The index of the desired note
+ * @return The letter-note name of that note (such as "A" or "C#")
+ */
+	public String getNoteName(int index) {
+		return noteNames[index];
+	}
+
+/**
+ * Finds the scientific octave number of a single note (A4 is in octave 4)
+ * @param index The index of the desired note
+ * @return The octave number of that note
+ */
+	public int getOctave(int index) {
+		return (LOWEST_MIDI + index) / 12 - 1;
+	}
+
+/**
+ * Basic get method for every frequency in the table
+ * @return A copy of the frequency table, lowest note first
+ */
+	public double[] getFrequencies() {
+		return frequencies.clone();
+	}
+
+/**
+ * Basic get method for every note name in the table
+ * @return A copy of the note name table; runs parallel to getFrequencies()
+ */
+	public String[] getNoteNames() {
+		return noteNames.clone();
+	}
+
+/**
+ * Basic get method for the double referencePitch
+ * @return The frequency in hz that A4 is tuned to in this table
+ */
+	public double getReferencePitch() {
+		return referencePitch;
+	}
+}
@@ -0,0 +1,101 @@
+package client;
+
+/**
+ * This class acts as a holder for one consistent view of the pitch state published by the Sound class. A reader
+ * allocates a PitchSnapshot once and passes it to Sound.readSnapshot() as often as it likes; every value in the
+ * snapshot is guaranteed to come from the same published frame.
+ * @author Jonathan Novins
+ * @version 1.0
+ */
+public class PitchSnapshot {
+
+/**
+ * The detected frequency in hz
+ */
+	private float noteFreq = -1;
+
+/**
+ * The probability TarsosDSP assigned to the detected frequency
+ */
+	private float noteProb;
+
+/**
+ * The index of the note nearest to noteFreq in the NoteTable that was used to publish it
+ */
+	private int nearestIndex;
+
+/**
+ * How far noteFreq is from the note at nearestIndex, in cents
+ */
+	private float noteCents;
+
+/**
+ * The audio time stamp (in seconds) of the buffer the pitch was detected in
+ */
+	private double timeStamp;
+
+/**
+ * The number of pitches that had been published when this snapshot was taken; 0 if none have been published yet
+ */
+	private long sequence;
+
+/**
+ * Copies one consistent set of values into the snapshot. Only called by Sound.
+ */
+	void set(float noteFreq, float noteProb, int nearestIndex, float noteCents, double timeStamp, long sequence) {
+		this.noteFreq = noteFreq;
+		this.noteProb = noteProb;
+		this.nearestIndex = nearestIndex;
+		this.noteCents = noteCents;
+		this.timeStamp = timeStamp;
+		this.sequence = sequence;
+	}
+
+/**
+ * Basic get method for the float noteFreq
+ * @return The detected frequency in hz, or -1 if no pitch has been published
+ */
+	public float getNoteFreq() {
+		return noteFreq;
+	}
+
+/**
+ * Basic get method for the float noteProb
+ * @return The probability of the detected frequency
+ */
+	public float getNoteProb() {
+		return noteProb;
+	}
+
+/**
+ * Basic get method for the int nearestIndex
+ * @return The index of the nearest note to the detected frequency
+ */
+	public int getNearestIndex() {
+		return nearestIndex;
+	}
+
+/**
+ * Basic get method for the float noteCents
+ * @return How far the detected frequency is from its nearest note, in cents
+ */
+	public float getNoteCents() {
+		return noteCents;
+	}
+
+/**
+ * Basic get method for the double timeStamp
+ * @return The audio time stamp in seconds of the buffer the pitch was detected in
+ */
+	public double getTimeStamp() {
+		return timeStamp;
+	}
+
+/**
+ * Basic get method for the long sequence
+ * @return The publish count at the time of the snapshot; changes every time the pitch values in Sound change
+ */
+	public long getSequence() {
+		return sequence;
+	}
+}
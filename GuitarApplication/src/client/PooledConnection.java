@@ -0,0 +1,138 @@
+package client;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class acts as a database connection borrowed from a ConnectionPool. Closing it hands the connection back to
+ * the pool rather than closing it, so it is meant to be used with try-with-resources. Statements and result sets made
+ * from getConnection() belong to the borrower and should be closed before the connection is returned. Statements from
+ * prepare() are the exception: they stay open in a small least-recently-used cache that lives as long as the
+ * connection, so a query that runs again on the same connection skips parsing and planning.
+ * @author Jonathan Novins
+ * @version 1.0
+ */
+public class PooledConnection implements AutoCloseable {
+
+/**
+ * Most PreparedStatements kept open per connection; the least recently used one is closed to make room
+ */
+	public static final int STATEMENT_CACHE_SIZE = 16;
+
+/**
+ * The pool this connection belongs to
+ */
+	private final ConnectionPool pool;
+
+/**
+ * The physical connection to the database
+ */
+	private final Connection connection;
+
+/**
+ * When the physical connection was opened, from System.nanoTime()
+ */
+	final long createdNanos;
+
+/**
+ * When the connection was last handed back to the pool, from System.nanoTime()
+ */
+	volatile long returnedNanos;
+
+/**
+ * Set when the borrower found the connection unusable, so the pool closes it instead of keeping it
+ */
+	private volatile boolean broken;
+
+/**
+ * Set while the connection is lent out; guards against it being returned twice
+ */
+	volatile boolean borrowed;
+
+/**
+ * Open PreparedStatements keyed by their SQL, least recently used first. Only touched by the current borrower.
+ */
+	private final Map<String, PreparedStatement> statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+			if(size() <= STATEMENT_CACHE_SIZE) {
+				return false;
+			}
+			try {
+				eldest.getValue().close();
+			}
+			catch(SQLException e) {
+				// it is being dropped either way
+			}
+			return true;
+		}
+	};
+
+/**
+ * Constructs a PooledConnection around a newly opened connection
+ * @param pool The pool the connection belongs to
+ * @param connection The physical connection
+ */
+	PooledConnection(ConnectionPool pool, Connection connection) {
+		this.pool = pool;
+		this.connection = connection;
+		this.createdNanos = System.nanoTime();
+		this.returnedNanos = createdNanos;
+	}
+
+/**
+ * Basic get method for the Connection connection
+ * @return The physical connection; do not close it, close this PooledConnection instead
+ */
+	public Connection getConnection() {
+		return connection;
+	}
+
+/**
+ * Finds the cached PreparedStatement for a query, preparing it on this connection the first time. The statement
+ * must not be closed, and every parameter should be set before each use; result sets it returns should be closed.
+ * @param sql The query, with ? for every parameter
+ * @return The open PreparedStatement
+ * @throws SQLException if the statement could not be prepared
+ */
+	public PreparedStatement prepare(String sql) throws SQLException {
+		PreparedStatement statement = statements.get(sql);
+		if(statement != null && !statement.isClosed()) {
+			pool.recordStatement(true);
+			return statement;
+		}
+		statement = connection.prepareStatement(sql);
+		statements.put(sql, statement);
+		pool.recordStatement(false);
+		return statement;
+	}
+
+/**
+ * Marks the connection as unusable, for example after an error that suggests the link to the database was lost.
+ * The pool closes it when it is returned instead of lending it out again.
+ */
+	public void invalidate() {
+		broken = true;
+	}
+
+/**
+ * Basic get method for the boolean broken
+ * @return Whether the connection was marked as unusable
+ */
+	public boolean isBroken() {
+		return broken;
+	}
+
+/**
+ * Hands the connection back to the pool
+ */
+	@Override
+	public void close() {
+		pool.release(this);
+	}
+}
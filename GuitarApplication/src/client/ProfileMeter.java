@@ -0,0 +1,108 @@
+package client;
+
+import be.tarsos.dsp.AudioEvent;
+import be.tarsos.dsp.AudioProcessor;
+
+/**
+ * This class acts as the first stage of the processor chain and measures how often buffers actually arrive from
+ * the dispatcher. Its report compares the measured update rate and gap against the nominal values of the active
+ * CaptureProfile. Measuring only reads the clock, so nothing is allocated per buffer.
+ * @author Jonathan Novins
+ * @version 1.0
+ */
+public class ProfileMeter implements AudioProcessor {
+
+/**
+ * The capture profile the dispatcher was built with
+ */
+	private final CaptureProfile profile;
+
+/**
+ * The number of buffers seen since the last reset
+ */
+	private volatile long frames;
+
+/**
+ * System.nanoTime() of the first buffer since the last reset
+ */
+	private volatile long firstFrameNanos;
+
+/**
+ * System.nanoTime() of the most recent buffer
+ */
+	private volatile long lastFrameNanos;
+
+/**
+ * The longest gap between two buffers since the last reset, in nanoseconds
+ */
+	private volatile long maxGapNanos;
+
+/**
+ * Constructs a ProfileMeter for the received profile
+ * @param profile The CaptureProfile that the dispatcher was built with
+ */
+	public ProfileMeter(CaptureProfile profile) {
+		this.profile = profile;
+	}
+
+/**
+ * Records the arrival time of a buffer. Always returns true so the rest of the chain runs normally.
+ */
+	@Override
+	public boolean process(AudioEvent audioEvent) {
+		long now = System.nanoTime();
+		long count = frames;
+		if(count == 0) {
+			firstFrameNanos = now;
+		}
+		else {
+			long gap = now - lastFrameNanos;
+			if(gap > maxGapNanos) {
+				maxGapNanos = gap;
+			}
+		}
+		lastFrameNanos = now;
+		frames = count + 1;
+		return true;
+	}
+
+/**
+ * Standard AudioProcessor method; nothing needs to be released
+ */
+	@Override
+	public void processingFinished() {
+	}
+
+/**
+ * Clears all measurements so the next report only covers what happens from now on
+ */
+	public void reset() {
+		frames = 0;
+		maxGapNanos = 0;
+	}
+
+/**
+ * Finds the measured number of buffers per second since the last reset
+ * @return The measured update rate, or 0 if fewer than two buffers have arrived
+ */
+	public double getMeasuredRate() {
+		long count = frames;
+		long span = lastFrameNanos - firstFrameNanos;
+		if(count < 2 || span <= 0) {
+			return 0;
+		}
+		return (count - 1) * 1e9 / span;
+	}
+
+/**
+ * Builds a one-line summary of the nominal and measured timing of the active profile
+ * @return A String suitable for printing to the console
+ */
+	public String report() {
+		double rate = getMeasuredRate();
+		return String.format("***CAPTURE PROFILE %s: nominal %.1f updates/s (hop %.1f ms, window %.1f ms, latency ~%.1f ms)"
+				+ " | measured %.1f updates/s (mean gap %.1f ms, max gap %.1f ms) over %d buffers***",
+				profile, 1000.0 / profile.getHopMillis(), profile.getHopMillis(), profile.getWindowMillis(),
+				profile.getLatencyMillis(), rate, rate > 0 ? 1000.0 / rate : 0, maxGapNanos / 1e6, frames);
+	}
+}
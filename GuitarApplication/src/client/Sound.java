@@ -1,22 +1,26 @@
 package client;
 
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.StampedLock;
 import javax.sound.sampled.LineUnavailableException;
 import userInterface.LauncherUI;
 import be.tarsos.dsp.AudioDispatcher;
-import be.tarsos.dsp.io.jvm.AudioDispatcherFactory;
+import be.tarsos.dsp.io.TarsosDSPAudioInputStream;
 
 /**
  * This class acts to handle all storage and retrieval of information relating to the functioning sound loop.
  * This allows for global manipulation of any variables related to sound, including variables exclusively
  * used in the tuner, scale practice, and intonation checker. The class imports the javax.sound class,
  * the LauncherUI class from the userInterface package, and several necessary classes from the TarsosDSP library.
+ * The pitch values (noteFreq, noteProb, nearestIndex and noteCents) are written by the audio thread and read by
+ * others, so they are guarded by a StampedLock and should be read together through readSnapshot().
  * @author Jonathan Novins
  * @version 1.2
  */
 public class Sound {
 /**
  * Serves as a variable that will hold the nearest index based on the currently read frequency. Designed
- * for use in conjunction with the noteFreqArray and noteArray arrays from the LauncherUI class.	
+ * for use in conjunction with a NoteTable (and the noteFreqArray and noteArray arrays from the LauncherUI class).	
  */
 	int nearestIndex;
 	
@@ -31,59 +35,68 @@ public class Sound {
  */
 	float noteProb;
 
+/**
+ * Serves as storage for how far the most recently read frequency is from the note at nearestIndex, in cents.
+ * Positive values are sharp and negative values are flat.
+ */
+	float noteCents;
+
 /**
  * Serves as storage for the most recently read open note frequency. Intended for use within the intonation
  * checking tool.
  */	
-	float openNote;
+	volatile float openNote;
 
 /**
  * Serves as storage for the most recently read harmonic note frequency. Intended for use within the intonation
  * checking tool in conjunction with the openNote value 
  */
-	float harmonicNote;
+	volatile float harmonicNote;
 	
 /**
- * Serves as storage for the intonation-check status relating to the first string that the user tests. Intended
- * for use within the intonation checking tool.	
+ * Serves as storage for the intonation-check status of every string, indexed by string with 0 being low E. Written
+ * by the IntonationEngine on the audio thread, so an AtomicIntegerArray keeps every value visible to other threads.
+ * Intended for use within the intonation checking tool.
  */
-	int stringStatus1;
+	final AtomicIntegerArray stringStatus = new AtomicIntegerArray(6);
 
 /**
- * Serves as storage for the intonation-check status relating to the second string that the user tests. Intended
- * for use within the intonation checking tool.	
+ * Serves as an int toggle relating to whether or notthe sound loop should be running at a given moment. This
+ * value should be set to 1 for open microphone simulation or 0 for closed microphone behavior.
  */
-	int stringStatus2;
-	
+	volatile int soundRun;
+
 /**
- * Serves as storage for the intonation-check status relating to the third string that the user tests. Intended
- * for use within the intonation checking tool.	
+ * The number of times the pitch values have changed, through publishPitch() or one of the single-value setters, so
+ * a snapshot's sequence always tells its reader whether anything changed. Guarded by pitchLock.
  */
-	int stringStatus3;
-	
+	long pitchSequence;
+
 /**
- * Serves as storage for the intonation-check status relating to the fourth string that the user tests. Intended
- * for use within the intonation checking tool.	
+ * The audio time stamp in seconds of the most recently published pitch. Guarded by pitchLock.
  */
-	int stringStatus4;
-	
+	double pitchTimeStamp;
+
 /**
- * Serves as storage for the intonation-check status relating to the fifth string that the user tests. Intended
- * for use within the intonation checking tool.	
+ * Seqlock guarding the pitch values. The audio thread takes the write lock to publish; readers use optimistic
+ * reads and retry if a publish happened part way through, so they never block the audio thread.
  */
-	int stringStatus5;
+	private final StampedLock pitchLock = new StampedLock();
 
 /**
- * Serves as storage for the intonation-check status relating to the sixth string that the user tests. Intended
- * for use within the intonation checking tool.		
+ * Number of hops of audio the capture ring can hold while the analysis thread is busy
  */
-	int stringStatus6;
+	public static final int CAPTURE_CHUNKS = 32;
 
 /**
- * Serves as an int toggle relating to whether or notthe sound loop should be running at a given moment. This
- * value should be set to 1 for open microphone simulation or 0 for closed microphone behavior.
+ * The ring between the capture thread and the dispatcher, or null until micConnect() is called
+ */
+	private CaptureRing captureRing;
+
+/**
+ * Finds, opens and reopens the recording device, or null until micConnect() is called
  */
-	int soundRun;
+	private AudioDeviceManager deviceManager;
 
 /**
  * Constructor that will create a new Sound Object and set all values to their defaults. Sound Object will
@@ -94,18 +107,14 @@ public class Sound {
 		nearestIndex = 0;
 		noteFreq = -1;
 		noteProb = 0;
+		noteCents = 0;
 		openNote = -1;
 		harmonicNote = -1;
-		stringStatus1 = 0;
-		stringStatus2 = 0;
-		stringStatus3 = 0;
-		stringStatus4 = 0;
-		stringStatus5 = 0;
-		stringStatus6 = 0;
 	}
 
 /**
- * Serves to set up a microphone connection to the host system's default recording device.
+ * Serves to set up a microphone connection to the host system's default recording device using the
+ * LOW_LATENCY capture profile.
  * @param dispatcher - receives a dispatcher device from the initial microphone connection attempt
  * in the LauncherUI class. When the dispatcher is received, it is unfinished and does not hold the required
  * connections.
@@ -113,24 +122,153 @@ public class Sound {
  * fullest extend.
  */
 	public AudioDispatcher micConnect(AudioDispatcher dispatcher) {
+		return micConnect(dispatcher, CaptureProfile.LOW_LATENCY);
+	}
+
+/**
+ * Serves to set up a microphone connection to the host system's default recording device, dropping the oldest
+ * captured audio if analysis falls behind.
+ * @param dispatcher - receives a dispatcher device from the initial microphone connection attempt
+ * in the LauncherUI class. When the dispatcher is received, it is unfinished and does not hold the required
+ * connections.
+ * @param profile - the CaptureProfile whose sample rate, buffer size and overlap the dispatcher should use. The
+ * same profile must be used when building the PitchProcessor so both agree on the window.
+ * @return The initially received AudioDispatcher Object that has since been modified to function to its
+ * fullest extend.
+ */
+	public AudioDispatcher micConnect(AudioDispatcher dispatcher, CaptureProfile profile) {
+		return micConnect(dispatcher, profile, CaptureRing.OverflowPolicy.DROP_OLDEST);
+	}
+
+/**
+ * Serves to set up a microphone connection to the host system's default recording device. The line is read by its
+ * own capture thread into a CaptureRing, and the returned dispatcher reads from that ring, so the thread running
+ * the dispatcher only ever does analysis.
+ * @param dispatcher - receives a dispatcher device from the initial microphone connection attempt
+ * in the LauncherUI class. When the dispatcher is received, it is unfinished and does not hold the required
+ * connections.
+ * @param profile - the CaptureProfile whose sample rate, buffer size and overlap the dispatcher should use. The
+ * same profile must be used when building the PitchProcessor so both agree on the window.
+ * @param policy - which audio the capture ring discards when analysis falls CAPTURE_CHUNKS hops behind
+ * @return The initially received AudioDispatcher Object that has since been modified to function to its
+ * fullest extend.
+ */
+	public AudioDispatcher micConnect(AudioDispatcher dispatcher, CaptureProfile profile, CaptureRing.OverflowPolicy policy) {
+		return micConnect(dispatcher, profile, policy, null);
+	}
+
+/**
+ * Serves to set up a microphone connection to the recording device with the lowest latency, or to a named one. The
+ * line is read by its own capture thread into a CaptureRing, and the returned dispatcher reads from that ring, so
+ * the thread running the dispatcher only ever does analysis. If the device is lost the AudioDeviceManager opens a
+ * replacement underneath the ring, so the dispatcher and its processors carry on untouched. If no device can be
+ * opened at all, the ring is started without one and keeps retrying, so plugging a microphone in later still works.
+ * @param dispatcher - receives a dispatcher device from the initial microphone connection attempt
+ * in the LauncherUI class. When the dispatcher is received, it is unfinished and does not hold the required
+ * connections.
+ * @param profile - the CaptureProfile whose sample rate, buffer size and overlap the dispatcher should use. The
+ * same profile must be used when building the PitchProcessor so both agree on the window.
+ * @param policy - which audio the capture ring discards when analysis falls CAPTURE_CHUNKS hops behind
+ * @param deviceName - part of the name of the recording device to use whenever it is present, or null to use the
+ * device with the lowest latency
+ * @return The initially received AudioDispatcher Object that has since been modified to function to its
+ * fullest extend.
+ */
+	public AudioDispatcher micConnect(AudioDispatcher dispatcher, CaptureProfile profile, CaptureRing.OverflowPolicy policy,
+			String deviceName) {
+		deviceManager = new AudioDeviceManager(profile);
+		deviceManager.setPreferredName(deviceName);
+		int chunkBytes = profile.getHopSize() * deviceManager.getFormat().getFrameSize();
 		try {
-			dispatcher = AudioDispatcherFactory.fromDefaultMicrophone(2048, 0); // attempts to make a connection to the computers default recording device
-			System.out.println("***MICROPHONE CONNECTION SUCCESSFUL***\n");
-			return dispatcher;
+			TarsosDSPAudioInputStream line = deviceManager.open(); // attempts to make a connection to the best recording device
+			captureRing = new CaptureRing(line, chunkBytes, CAPTURE_CHUNKS, policy);
+			System.out.println("***MICROPHONE CONNECTION SUCCESSFUL (" + profile + ", " + policy + ")***");
 		} catch (LineUnavailableException e1) {
-			System.out.println("***MICROPHONE CONNECTION FAILED***");
-			System.out.println("[PLEASE MAKE SURE THE DESIRED DEVICE IS SET TO DEFAULT IN WINDOWS]");
-			e1.printStackTrace();
-			return null;
+			System.out.println("***MICROPHONE CONNECTION FAILED: " + e1.getMessage() + "***");
+			captureRing = new CaptureRing(deviceManager.getFormat(), chunkBytes, CAPTURE_CHUNKS, policy); // waits for a device on the capture thread
 		}
+		captureRing.setReconnector(deviceManager);
+		captureRing.start();
+		dispatcher = new AudioDispatcher(captureRing, profile.getBufferSize(), profile.getOverlap());
+		System.out.println(deviceManager.report() + "\n");
+		return dispatcher;
+	}
+
+/**
+ * Basic get method for the CaptureRing captureRing
+ * @return The ring between the capture thread and the dispatcher, or null if micConnect() has not been called
+ */
+	public CaptureRing getCaptureRing() {
+		return captureRing;
+	}
+
+/**
+ * Basic get method for the AudioDeviceManager deviceManager
+ * @return The manager of the recording device, or null if micConnect() has not been called
+ */
+	public AudioDeviceManager getDeviceManager() {
+		return deviceManager;
 	}
 	
+/**
+ * Publishes one detected pitch as a single atomic update, so readers can never see a new frequency paired with
+ * an old nearest index (or any other mix of two frames).
+ * @param noteFreq The detected frequency in hz
+ * @param noteProb The probability of the detected frequency
+ * @param nearestIndex The index of the note nearest to noteFreq
+ * @param noteCents How far noteFreq is from the note at nearestIndex, in cents
+ * @param timeStamp The audio time stamp in seconds of the buffer the pitch was detected in
+ */
+	public void publishPitch(float noteFreq, float noteProb, int nearestIndex, float noteCents, double timeStamp) {
+		long stamp = pitchLock.writeLock();
+		try {
+			this.noteFreq = noteFreq;
+			this.noteProb = noteProb;
+			this.nearestIndex = nearestIndex;
+			this.noteCents = noteCents;
+			this.pitchTimeStamp = timeStamp;
+			pitchSequence++;
+		} finally {
+			pitchLock.unlockWrite(stamp);
+		}
+	}
+
+/**
+ * Copies the most recently published pitch into the received snapshot without taking a lock. If a publish
+ * happens while the values are being copied, the copy is simply retried, so a reader never blocks the audio thread.
+ * Code that reads more than one value should call it with a snapshot it reuses rather than the single-value getters
+ * below, whose values may come from different publishes.
+ * @param snapshot A PitchSnapshot owned by the caller that will be overwritten; reusing one avoids allocation
+ * @return The same snapshot that was received, now holding one consistent set of values
+ */
+	public PitchSnapshot readSnapshot(PitchSnapshot snapshot) {
+		while(true) {
+			long stamp = pitchLock.tryOptimisticRead();
+			float freq = noteFreq;
+			float prob = noteProb;
+			int index = nearestIndex;
+			float cents = noteCents;
+			double timeStamp = pitchTimeStamp;
+			long sequence = pitchSequence;
+			if(pitchLock.validate(stamp)) {
+				snapshot.set(freq, prob, index, cents, timeStamp, sequence);
+				return snapshot;
+			}
+		}
+	}
+
 /**
  * Basic get method for the int nearestIndex
  * @return Most recently stored value in the nearestIndex variable
  */
 	public int getNearestIndex() {
-		return nearestIndex;
+		while(true) {
+			long stamp = pitchLock.tryOptimisticRead();
+			int value = nearestIndex;
+			if(pitchLock.validate(stamp)) {
+				return value;
+			}
+		}
 	}
 
 /**
@@ -138,7 +276,13 @@ public class Sound {
  * @param nearestIndex The desired value that nearestIndex should be set to
  */
 	public void setNearestIndex(int nearestIndex) {
-		this.nearestIndex = nearestIndex;
+		long stamp = pitchLock.writeLock();
+		try {
+			this.nearestIndex = nearestIndex;
+			pitchSequence++;
+		} finally {
+			pitchLock.unlockWrite(stamp);
+		}
 	}
 
 /**
@@ -146,7 +290,13 @@ public class Sound {
  * @return Most recently stored value in the noteFreq variable
  */
 	public float getNoteFreq() {
-		return noteFreq;
+		while(true) {
+			long stamp = pitchLock.tryOptimisticRead();
+			float value = noteFreq;
+			if(pitchLock.validate(stamp)) {
+				return value;
+			}
+		}
 	}
 
 /**
@@ -154,7 +304,13 @@ public class Sound {
  * @param noteFreq The desired value that nearestIndex should be set to.
  */
 	public void setNoteFreq(float noteFreq) {
-		this.noteFreq = noteFreq;
+		long stamp = pitchLock.writeLock();
+		try {
+			this.noteFreq = noteFreq;
+			pitchSequence++;
+		} finally {
+			pitchLock.unlockWrite(stamp);
+		}
 	}
 
 /**
@@ -162,7 +318,13 @@ public class Sound {
  * @return Most recently stored value in the noteProb variable
  */
 	public float getNoteProb() {
-		return noteProb;
+		while(true) {
+			long stamp = pitchLock.tryOptimisticRead();
+			float value = noteProb;
+			if(pitchLock.validate(stamp)) {
+				return value;
+			}
+		}
 	}
 
 /**
@@ -170,7 +332,41 @@ public class Sound {
  * @param noteProb The desired value that noteProb should be set to
  */
 	public void setNoteProb(float noteProb) {
-		this.noteProb = noteProb;
+		long stamp = pitchLock.writeLock();
+		try {
+			this.noteProb = noteProb;
+			pitchSequence++;
+		} finally {
+			pitchLock.unlockWrite(stamp);
+		}
+	}
+
+/**
+ * Basic get method for the float noteCents
+ * @return Most recently stored value in the noteCents variable
+ */
+	public float getNoteCents() {
+		while(true) {
+			long stamp = pitchLock.tryOptimisticRead();
+			float value = noteCents;
+			if(pitchLock.validate(stamp)) {
+				return value;
+			}
+		}
+	}
+
+/**
+ * Basic set method for the float noteCents
+ * @param noteCents The desired value that noteCents should be set to
+ */
+	public void setNoteCents(float noteCents) {
+		long stamp = pitchLock.writeLock();
+		try {
+			this.noteCents = noteCents;
+			pitchSequence++;
+		} finally {
+			pitchLock.unlockWrite(stamp);
+		}
 	}
 
 /**
@@ -205,12 +401,30 @@ public class Sound {
 		this.harmonicNote = harmonicNote;
 	}
 
+/**
+ * Get method for the intonation-check status of any string
+ * @param string The string to look up, 0 being low E
+ * @return Most recently stored status of that string
+ */
+	public int getStringStatus(int string) {
+		return stringStatus.get(string);
+	}
+
+/**
+ * Set method for the intonation-check status of any string
+ * @param string The string to update, 0 being low E
+ * @param status The desired status of that string
+ */
+	public void setStringStatus(int string, int status) {
+		stringStatus.set(string, status);
+	}
+
 /**
  * Basic get method for the int stringStatus1
  * @return Most recently stored value in the stringStatus1 variable
  */
 	public int getStringStatus1() {
-		return stringStatus1;
+		return stringStatus.get(0);
 	}
 
 /**
@@ -218,7 +432,7 @@ public class Sound {
  * @param stringStatus1 The desired value that stringStatus1 should be set to
  */
 	public void setStringStatus1(int stringStatus1) {
-		this.stringStatus1 = stringStatus1;
+		stringStatus.set(0, stringStatus1);
 	}
 
 /**
@@ -226,7 +440,7 @@ public class Sound {
  * @return Most recently stored value in the stringStatus2 variable
  */
 	public int getStringStatus2() {
-		return stringStatus2;
+		return stringStatus.get(1);
 	}
 
 /**
@@ -234,7 +448,7 @@ public class Sound {
  * @param stringStatus2 The desired value that stringStatus2 should be set to
  */
 	public void setStringStatus2(int stringStatus2) {
-		this.stringStatus2 = stringStatus2;
+		stringStatus.set(1, stringStatus2);
 	}
 
 /**
@@ -242,7 +456,7 @@ public class Sound {
  * @return Most recently stored value in the stringStatus3 variable
  */
 	public int getStringStatus3() {
-		return stringStatus3;
+		return stringStatus.get(2);
 	}
 
 /**
@@ -250,7 +464,7 @@ public class Sound {
  * @param stringStatus3 The desired value that stringStatus3 should be set to
  */
 	public void setStringStatus3(int stringStatus3) {
-		this.stringStatus3 = stringStatus3;
+		stringStatus.set(2, stringStatus3);
 	}
 
 /**
@@ -258,7 +472,7 @@ public class Sound {
  * @return Most recently stored value in the stringStatus4 variable
  */
 	public int getStringStatus4() {
-		return stringStatus4;
+		return stringStatus.get(3);
 	}
 
 /**
@@ -266,15 +480,15 @@ public class Sound {
  * @param stringStatus4 The desired value that stringStatus4 should be set to
  */
 	public void setStringStatus4(int stringStatus4) {
-		this.stringStatus4 = stringStatus4;
+		stringStatus.set(3, stringStatus4);
 	}
 
 /**
  * Basic get method for the int stringStatus5
- * @return Most recently stored value in the stringStatus4 variable
+ * @return Most recently stored value in the stringStatus5 variable
  */
 	public int getStringStatus5() {
-		return stringStatus5;
+		return stringStatus.get(4);
 	}
 
 /**
@@ -282,7 +496,7 @@ public class Sound {
  * @param stringStatus5 The desired value that stringStatus5 should be set to
  */
 	public void setStringStatus5(int stringStatus5) {
-		this.stringStatus5 = stringStatus5;
+		stringStatus.set(4, stringStatus5);
 	}
 
 /**
@@ -290,7 +504,7 @@ public class Sound {
  * @return Most recently stored value in the stringStatus6 variable
  */
 	public int getStringStatus6() {
-		return stringStatus6;
+		return stringStatus.get(5);
 	}
 
 /**
@@ -298,7 +512,7 @@ public class Sound {
  * @param stringStatus6 The desired value that stringStatus6 should be set to
  */
 	public void setStringStatus6(int stringStatus6) {
-		this.stringStatus6 = stringStatus6;
+		stringStatus.set(5, stringStatus6);
 	}
 	
 /**
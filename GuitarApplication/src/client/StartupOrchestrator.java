@@ -0,0 +1,230 @@
+package client;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class runs the independent parts of application startup at the same time and records how long each took.
+ * Every phase submitted runs on a thread of its own, so opening the audio line, decoding images and connecting to the
+ * database overlap instead of queuing behind one another on the JavaFX thread; work already running elsewhere can be
+ * tracked so it still appears in the report, from when it really started. Marks record moments such as the first
+ * frame being shown. Once every phase has finished, report() gives each phase's start, end and outcome relative to the
+ * orchestrator's creation; work that started before it has a negative start.
+ * @author Jonathan Novins
+ * @version 1.0
+ */
+public class StartupOrchestrator implements AutoCloseable {
+
+/**
+ * One piece of startup work
+ * @param <T> The type of the phase's result
+ */
+	public interface Phase<T> {
+		/**
+		 * Runs the phase
+		 * @return The result
+		 * @throws Exception if the phase fails; its future completes exceptionally
+		 */
+		T run() throws Exception;
+	}
+
+/**
+ * The timing of one phase or mark, in milliseconds since the orchestrator was created
+ */
+	private static class Timing {
+		private final String name;
+		private final double startMillis;
+		private volatile double endMillis = Double.NaN;
+		private volatile boolean failed;
+
+		Timing(String name, double startMillis) {
+			this.name = name;
+			this.startMillis = startMillis;
+		}
+	}
+
+/**
+ * When the orchestrator was created, from System.nanoTime()
+ */
+	private final long startNanos = System.nanoTime();
+
+/**
+ * How long the JVM had been running when the orchestrator was created, in milliseconds
+ */
+	private final long jvmUptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+
+/**
+ * Runs the submitted phases, one daemon thread each
+ */
+	private final ExecutorService executor;
+
+/**
+ * Every phase in the order it was started
+ */
+	private final List<Timing> phases = new ArrayList<Timing>();
+
+/**
+ * Every mark in the order it was made
+ */
+	private final List<Timing> marks = new ArrayList<Timing>();
+
+/**
+ * The future of every phase, so allDone() can wait for them together
+ */
+	private final List<CompletableFuture<?>> futures = new ArrayList<CompletableFuture<?>>();
+
+/**
+ * Constructs a StartupOrchestrator; its clock starts now
+ */
+	public StartupOrchestrator() {
+		AtomicInteger count = new AtomicInteger();
+		executor = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "startup-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+/**
+ * Starts a phase on a thread of its own
+ * @param name The name the phase is reported under
+ * @param phase The work to run
+ * @param <T> The type of the phase's result
+ * @return Completes with the phase's result, or exceptionally with what it threw
+ */
+	public <T> CompletableFuture<T> submit(String name, Phase<T> phase) {
+		CompletableFuture<T> result = new CompletableFuture<T>();
+		Timing timing = begin(name, result, elapsedMillis());
+		executor.execute(() -> {
+			try {
+				T value = phase.run();
+				finish(timing, false);
+				result.complete(value);
+			}
+			catch(Exception | Error e) {
+				finish(timing, true);
+				result.completeExceptionally(e);
+			}
+		});
+		return result;
+	}
+
+/**
+ * Adds work that is already running elsewhere to the report, timed from now until it completes
+ * @param name The name the phase is reported under
+ * @param future The work's future
+ * @param <T> The type of the work's result
+ * @return The same future
+ */
+	public <T> CompletableFuture<T> track(String name, CompletableFuture<T> future) {
+		return track(name, future, System.nanoTime());
+	}
+
+/**
+ * Adds work that is already running elsewhere to the report, timed from when it started until it completes
+ * @param name The name the phase is reported under
+ * @param future The work's future
+ * @param startedNanos When the work started, from System.nanoTime(); may be before the orchestrator was created
+ * @param <T> The type of the work's result
+ * @return The same future
+ */
+	public <T> CompletableFuture<T> track(String name, CompletableFuture<T> future, long startedNanos) {
+		Timing timing = begin(name, future, (startedNanos - startNanos) / 1e6);
+		future.whenComplete((value, error) -> finish(timing, error != null));
+		return future;
+	}
+
+/**
+ * Records that something happened now, such as the first frame being shown
+ * @param name The name the moment is reported under
+ */
+	public void mark(String name) {
+		Timing timing = new Timing(name, elapsedMillis());
+		timing.endMillis = timing.startMillis;
+		synchronized(marks) {
+			marks.add(timing);
+		}
+	}
+
+/**
+ * Records a phase as started
+ */
+	private Timing begin(String name, CompletableFuture<?> future, double startMillis) {
+		Timing timing = new Timing(name, startMillis);
+		synchronized(phases) {
+			phases.add(timing);
+			futures.add(future);
+		}
+		return timing;
+	}
+
+/**
+ * Records a phase as finished
+ */
+	private void finish(Timing timing, boolean failed) {
+		timing.failed = failed;
+		timing.endMillis = elapsedMillis();
+	}
+
+/**
+ * Finds how long ago the orchestrator was created
+ */
+	private double elapsedMillis() {
+		return (System.nanoTime() - startNanos) / 1e6;
+	}
+
+/**
+ * Waits for every phase started so far, whether it succeeds or fails
+ * @return Completes once every phase has finished; never completes exceptionally
+ */
+	public CompletableFuture<Void> allDone() {
+		CompletableFuture<?>[] all;
+		synchronized(phases) {
+			all = new CompletableFuture<?>[futures.size()];
+			for(int i = 0; i < all.length; i++) {
+				all[i] = futures.get(i).handle((value, error) -> null);
+			}
+		}
+		return CompletableFuture.allOf(all);
+	}
+
+/**
+ * Stops the phase threads once the phases already submitted have finished
+ */
+	@Override
+	public void close() {
+		executor.shutdown();
+	}
+
+/**
+ * Builds a one-line summary of every phase and mark, in milliseconds since the orchestrator was created
+ * @return A String suitable for printing to the console
+ */
+	public String report() {
+		StringBuilder text = new StringBuilder(String.format("***STARTUP (from %d ms after JVM start):", jvmUptimeMillis));
+		double last = 0;
+		synchronized(phases) {
+			for(Timing timing : phases) {
+				double end = timing.endMillis;
+				if(Double.isNaN(end)) {
+					text.append(String.format(" %s %.1f ms - still running |", timing.name, timing.startMillis));
+					continue;
+				}
+				text.append(String.format(" %s %.1f-%.1f ms (%.1f ms%s) |", timing.name, timing.startMillis, end,
+						end - timing.startMillis, timing.failed ? ", FAILED" : ""));
+				last = Math.max(last, end);
+			}
+		}
+		synchronized(marks) {
+			for(Timing timing : marks) {
+				text.append(String.format(" %s at %.1f ms |", timing.name, timing.startMillis));
+			}
+		}
+		return text.append(String.format(" all phases done at %.1f ms***", last)).toString();
+	}
+}
@@ -0,0 +1,328 @@
+package client;
+
+import java.util.concurrent.locks.StampedLock;
+import be.tarsos.dsp.AudioEvent;
+import be.tarsos.dsp.AudioProcessor;
+import be.tarsos.dsp.util.fft.FFT;
+import be.tarsos.dsp.util.fft.HannWindow;
+
+/**
+ * This class acts as a polyphonic tuner that reports how far each of the six strings is from standard tuning out of a
+ * single strummed chord. Instead of running six monophonic detectors it keeps a history of the incoming audio and, a
+ * few times per second, runs one FFT over it. Every string then looks for its own peak in the part of the spectrum
+ * around its target frequency, refined by parabolic interpolation. Strings are measured from low E up, and the
+ * overtones of every string already found are masked out of the spectrum before the higher strings search it: low E's
+ * 3rd and 4th partials land on B and high E, and A's 3rd on high E, so without the mask those strings would report the
+ * lower string's overtone whenever they are quiet or muted. The overtone and a coinciding fundamental cannot be told
+ * apart in one spectrum, so a string whose only peak is under the mask reads NaN rather than a guess. The FFT plan and
+ * all buffers are allocated once, so nothing is allocated on the audio thread. The history only ever holds contiguous
+ * audio: when the timestamps show that buffers were dropped before this one (the gates ahead of it in the chain cut it
+ * off between strums), the history starts again, since an FFT over audio from either side of the gap would smear every
+ * string's peak.
+ * @author Jonathan Novins
+ * @version 1.0
+ */
+public class StrumTuner implements AudioProcessor {
+
+/**
+ * Number of strings that are tracked
+ */
+	public static final int STRINGS = 6;
+
+/**
+ * Number of samples in every FFT. At 44.1khz one bin is about 2.7hz, which interpolation refines to a few cents
+ */
+	private static final int FFT_SIZE = 16384;
+
+/**
+ * Number of new samples that must arrive before the next FFT is run (about 93ms at 44.1khz)
+ */
+	private static final int ANALYSIS_HOP = 4096;
+
+/**
+ * How far either side of its target each string searches for its peak, in cents
+ */
+	private static final double SEARCH_CENTS = 100;
+
+/**
+ * A string only counts as sounding when its peak is this many times the average level of the guitar range
+ */
+	private static final float PRESENCE_RATIO = 8;
+
+/**
+ * How much of each new reading is blended into a string's tracked value
+ */
+	private static final float SMOOTHING = 0.5f;
+
+/**
+ * How many bins either side of a lower string's predicted overtone are masked. One bin either side holds most of the
+ * Hann window's main lobe while still letting a string about 2 bins (30 to 40 cents) away show its own peak.
+ */
+	private static final int MASK_BINS = 1;
+
+/**
+ * Lowest and highest frequencies used to measure the average spectrum level
+ */
+	private static final double RANGE_LOW = 60, RANGE_HIGH = 1400;
+
+/**
+ * Target frequency of every string in hz
+ */
+	private final double[] targets = new double[STRINGS];
+
+/**
+ * First and last FFT bin each string searches
+ */
+	private final int[] searchLow = new int[STRINGS], searchHigh = new int[STRINGS];
+
+/**
+ * Tracked deviation of every string in cents; NaN while a string is not sounding. Guarded by lock.
+ */
+	private final float[] cents = new float[STRINGS];
+
+/**
+ * Seqlock guarding cents, so the UI can copy all six values without blocking the audio thread
+ */
+	private final StampedLock lock = new StampedLock();
+
+/**
+ * The reused FFT plan
+ */
+	private final FFT fft;
+
+/**
+ * Circular history of the most recent FFT_SIZE samples
+ */
+	private final float[] history = new float[FFT_SIZE];
+
+/**
+ * The history unrolled into time order and transformed in place
+ */
+	private final float[] fftBuffer = new float[FFT_SIZE];
+
+/**
+ * Magnitude of every FFT bin
+ */
+	private final float[] magnitudes = new float[FFT_SIZE / 2];
+
+/**
+ * For every bin, the number of the analysis that last masked it as a lower string's overtone
+ */
+	private final int[] maskedIn = new int[FFT_SIZE / 2];
+
+/**
+ * Number of the current analysis, so maskedIn never needs clearing
+ */
+	private int analysis;
+
+/**
+ * The sample rate in hz of the incoming audio
+ */
+	private final float sampleRate;
+
+/**
+ * First and last bins of the guitar range used for the average level
+ */
+	private final int rangeLowBin, rangeHighBin;
+
+/**
+ * Index in history where the next sample will be written
+ */
+	private int writeIndex;
+
+/**
+ * Number of samples received since the last FFT
+ */
+	private int samplesSinceAnalysis;
+
+/**
+ * Total number of samples received; the first FFT waits until history is full
+ */
+	private long samplesReceived;
+
+/**
+ * Stream position of the previous buffer in samples, or Long.MIN_VALUE before the first
+ */
+	private long lastPosition = Long.MIN_VALUE;
+
+/**
+ * Constructs a StrumTuner for standard tuning
+ * @param noteTable The table the string targets are taken from
+ * @param sampleRate The sample rate in hz of the incoming audio
+ */
+	public StrumTuner(NoteTable noteTable, float sampleRate) {
+		this.sampleRate = sampleRate;
+		fft = new FFT(FFT_SIZE, new HannWindow());
+		double binWidth = sampleRate / FFT_SIZE;
+		double searchRatio = Math.pow(2, SEARCH_CENTS / 1200);
+		for(int s = 0; s < STRINGS; s++) {
+			targets[s] = noteTable.getFrequency(NoteTable.STANDARD_TUNING[s]);
+			searchLow[s] = Math.max(1, (int) Math.floor(targets[s] / searchRatio / binWidth));
+			searchHigh[s] = Math.min(magnitudes.length - 2, (int) Math.ceil(targets[s] * searchRatio / binWidth));
+			cents[s] = Float.NaN;
+		}
+		rangeLowBin = (int) (RANGE_LOW / binWidth);
+		rangeHighBin = Math.min(magnitudes.length - 1, (int) (RANGE_HIGH / binWidth));
+	}
+
+/**
+ * Appends the new samples of the buffer to the history and runs an FFT once enough have arrived. The new samples are
+ * found from how far the timestamp moved since the previous buffer, so a gap restarts the history.
+ */
+	@Override
+	public boolean process(AudioEvent audioEvent) {
+		float[] buffer = audioEvent.getFloatBuffer();
+		long position = Math.round(audioEvent.getTimeStamp() * sampleRate);
+		long hop = position - lastPosition;
+		lastPosition = position;
+		int fresh = (int) Math.min(buffer.length, hop);
+		if(hop <= 0 || hop > buffer.length) {
+			// first buffer, or buffers were gated out since the previous one: the history no longer joins up with it
+			fresh = buffer.length;
+			samplesReceived = 0;
+			samplesSinceAnalysis = 0;
+		}
+		for(int i = buffer.length - fresh; i < buffer.length; i++) {
+			history[writeIndex] = buffer[i];
+			writeIndex = (writeIndex + 1) % FFT_SIZE;
+		}
+		samplesReceived += fresh;
+		samplesSinceAnalysis += fresh;
+
+		if(samplesReceived >= FFT_SIZE && samplesSinceAnalysis >= ANALYSIS_HOP) {
+			samplesSinceAnalysis = 0;
+			analyze();
+		}
+		return true;
+	}
+
+/**
+ * Runs the FFT over the history and updates every string's tracked deviation, masking the overtones of each string
+ * found before the higher strings are searched
+ */
+	private void analyze() {
+		int tail = FFT_SIZE - writeIndex;
+		System.arraycopy(history, writeIndex, fftBuffer, 0, tail);
+		System.arraycopy(history, 0, fftBuffer, tail, writeIndex);
+		fft.forwardTransform(fftBuffer);
+		fft.modulus(fftBuffer, magnitudes);
+
+		double level = 0;
+		for(int bin = rangeLowBin; bin <= rangeHighBin; bin++) {
+			level += magnitudes[bin];
+		}
+		level /= Math.max(1, rangeHighBin - rangeLowBin + 1);
+
+		analysis++;
+		long stamp = lock.writeLock();
+		try {
+			for(int s = 0; s < STRINGS; s++) {
+				int peak = findPeak(s);
+				if(peak < 0 || magnitudes[peak] <= level * PRESENCE_RATIO) {
+					cents[s] = Float.NaN;
+					continue;
+				}
+				double bin = interpolate(peak);
+				maskOvertones(bin);
+				double frequency = bin * sampleRate / FFT_SIZE;
+				float reading = (float) (1200 * Math.log(frequency / targets[s]) / Math.log(2));
+				cents[s] = Float.isNaN(cents[s]) ? reading : cents[s] + (reading - cents[s]) * SMOOTHING;
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+/**
+ * Finds the strongest local maximum in a string's search range that is clear of the mask
+ * @param s The string to search for
+ * @return The peak bin, or -1 if there is none
+ */
+	private int findPeak(int s) {
+		int peak = -1;
+		for(int bin = searchLow[s]; bin <= searchHigh[s]; bin++) {
+			if(maskedIn[bin] == analysis) {
+				continue;
+			}
+			if(magnitudes[bin] < magnitudes[bin - 1] || magnitudes[bin] < magnitudes[bin + 1]) {
+				continue; // the skirt of a peak outside the range or under the mask, not a peak of its own
+			}
+			if(peak < 0 || magnitudes[bin] > magnitudes[peak]) {
+				peak = bin;
+			}
+		}
+		return peak;
+	}
+
+/**
+ * Masks every overtone of a string found at the received fractional bin that falls below the top of the highest
+ * string's search range
+ */
+	private void maskOvertones(double fundamental) {
+		int top = searchHigh[STRINGS - 1] + 1;
+		for(int k = 2; k * fundamental - MASK_BINS <= top; k++) {
+			int centre = (int) Math.round(k * fundamental);
+			for(int bin = Math.max(0, centre - MASK_BINS); bin <= Math.min(top, centre + MASK_BINS); bin++) {
+				maskedIn[bin] = analysis;
+			}
+		}
+	}
+
+/**
+ * Refines a peak bin to a fractional bin using a parabola through the log magnitudes of it and its neighbours
+ */
+	private double interpolate(int peak) {
+		double left = Math.log(magnitudes[peak - 1] + 1e-12);
+		double centre = Math.log(magnitudes[peak] + 1e-12);
+		double right = Math.log(magnitudes[peak + 1] + 1e-12);
+		double denominator = left - 2 * centre + right;
+		if(denominator == 0) {
+			return peak;
+		}
+		return peak + 0.5 * (left - right) / denominator;
+	}
+
+/**
+ * Copies the tracked deviation of every string without blocking the audio thread
+ * @param dest An array of at least STRINGS elements that will receive each string's deviation in cents, low E
+ * first; NaN means the string is not currently sounding
+ * @return The same array that was received
+ */
+	public float[] readCents(float[] dest) {
+		while(true) {
+			long stamp = lock.tryOptimisticRead();
+			for(int s = 0; s < STRINGS; s++) {
+				dest[s] = cents[s];
+			}
+			if(lock.validate(stamp)) {
+				return dest;
+			}
+		}
+	}
+
+/**
+ * Forgets every tracked string and the audio history, so the next chord starts from scratch. Should only be
+ * called while the StrumTuner is not attached to a running dispatcher.
+ */
+	public void reset() {
+		long stamp = lock.writeLock();
+		try {
+			for(int s = 0; s < STRINGS; s++) {
+				cents[s] = Float.NaN;
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		samplesReceived = 0;
+		samplesSinceAnalysis = 0;
+		writeIndex = 0;
+		lastPosition = Long.MIN_VALUE;
+	}
+
+/**
+ * Standard AudioProcessor method; nothing needs to be released
+ */
+	@Override
+	public void processingFinished() {
+	}
+}
@@ -0,0 +1,357 @@
+package client;
+
+import be.tarsos.dsp.AudioEvent;
+import be.tarsos.dsp.AudioProcessor;
+
+/**
+ * This class acts as a pitch detector for the intonation checking tool, where the note being played is already known.
+ * Rather than searching every possible pitch like YIN, it runs a small bank of Goertzel filters spread over a few
+ * cents either side of the target string's open frequency and of its octave (the 12th fret). The strongest filter
+ * gives a coarse estimate, which is then refined from how far that filter's phase advanced since the previous buffer,
+ * the same idea as a sliding DFT. Two short filter banks cost a small fraction of a full YIN pass per buffer, yet the
+ * phase refinement resolves well under a cent on a steady note. Buffers shorter than MIN_WINDOW (such as those of
+ * CaptureProfile.ADAPTIVE) are collected into a window of MIN_WINDOW samples first, since a short window cannot
+ * tell a low string's fundamental from its octave.
+ * @author Jonathan Novins
+ * @version 1.0
+ */
+public class TargetDetector implements AudioProcessor {
+
+/**
+ * Handler that is called once for every buffer the detector has measured
+ */
+	public interface TargetHandler {
+		/**
+		 * Receives the detector after it has measured a buffer; its get methods hold the new values
+		 * @param detector The detector that measured the buffer
+		 * @param audioEvent The buffer that was measured
+		 */
+		void handleTarget(TargetDetector detector, AudioEvent audioEvent);
+	}
+
+/**
+ * How far either side of the fundamental and the octave the filters reach, in cents
+ */
+	private static final double SEARCH_CENTS = 150;
+
+/**
+ * Spacing between neighbouring filters, in cents
+ */
+	private static final double STEP_CENTS = 25;
+
+/**
+ * Number of filters in each bank
+ */
+	private static final int PROBES = (int) (2 * SEARCH_CENTS / STEP_CENTS) + 1;
+
+/**
+ * Share of the buffer's energy the strongest filter of a bank must hold for that partial to count as present
+ */
+	public static final double PRESENCE = 0.05;
+
+/**
+ * Fewest samples the filters run over. At 44100 hz this resolves about 11 hz, so the banks around low E's
+ * fundamental and its octave no longer overlap.
+ */
+	public static final int MIN_WINDOW = 4096;
+
+/**
+ * The sample rate in hz of the incoming audio
+ */
+	private final float sampleRate;
+
+/**
+ * The handler notified after every buffer, or null
+ */
+	private final TargetHandler handler;
+
+/**
+ * The filter banks for the current target. Replaced as a whole by setTarget() so the audio thread never sees a
+ * half-updated bank.
+ */
+	private volatile Bank bank;
+
+/**
+ * Hann window matching the most recent buffer size
+ */
+	private float[] window = new float[0];
+
+/**
+ * The most recent buffer multiplied by the window
+ */
+	private float[] windowed = new float[0];
+
+/**
+ * Ratio between the power a filter would see for a pure tone and that tone's energy, for the current window
+ */
+	private double toneGain;
+
+/**
+ * Position of the previous buffer in samples, used to find how far the filters' phase should have advanced
+ */
+	private long lastPosition = Long.MIN_VALUE;
+
+/**
+ * The most recent MIN_WINDOW samples when the buffers are shorter than that, oldest first
+ */
+	private final float[] history = new float[MIN_WINDOW];
+
+/**
+ * Number of valid samples at the end of history
+ */
+	private int filled;
+
+/**
+ * Position of the previous buffer added to history in samples, or Long.MIN_VALUE before the first
+ */
+	private long historyPosition = Long.MIN_VALUE;
+
+/**
+ * Most recent estimates; NaN while a partial is not present
+ */
+	private volatile double fundamental = Double.NaN, octave = Double.NaN;
+
+/**
+ * Share of the most recent buffer's energy held by the fundamental and the octave
+ */
+	private volatile double fundamentalStrength, octaveStrength;
+
+/**
+ * Constructs a TargetDetector
+ * @param sampleRate The sample rate in hz of the incoming audio
+ * @param target The open frequency in hz of the string being checked
+ * @param handler Notified after every buffer; may be null if the get methods are polled instead
+ */
+	public TargetDetector(float sampleRate, double target, TargetHandler handler) {
+		this.sampleRate = sampleRate;
+		this.handler = handler;
+		setTarget(target);
+	}
+
+/**
+ * Moves both filter banks to a new string. Safe to call from any thread while the detector is attached.
+ * @param target The open frequency in hz of the string being checked
+ */
+	public void setTarget(double target) {
+		bank = new Bank(new Region(target), new Region(target * 2));
+	}
+
+/**
+ * Measures the fundamental and the octave of the target in the buffer and notifies the handler
+ */
+	@Override
+	public boolean process(AudioEvent audioEvent) {
+		long position = Math.round(audioEvent.getTimeStamp() * sampleRate);
+		float[] buffer = audioEvent.getFloatBuffer();
+		if(buffer.length < MIN_WINDOW) {
+			buffer = accumulate(buffer, position);
+			if(buffer == null) {
+				return true; // not enough audio yet for a window that separates the fundamental from the octave
+			}
+		}
+		if(window.length != buffer.length) {
+			buildWindow(buffer.length);
+		}
+		double energy = 0;
+		for(int i = 0; i < buffer.length; i++) {
+			float sample = buffer[i] * window[i];
+			windowed[i] = sample;
+			energy += sample * sample;
+		}
+
+		long hop = lastPosition == Long.MIN_VALUE ? -1 : position - lastPosition;
+		lastPosition = position;
+
+		Bank current = bank;
+		current.fundamental.measure(windowed, energy, hop);
+		current.octave.measure(windowed, energy, hop);
+		fundamentalStrength = current.fundamental.strength;
+		octaveStrength = current.octave.strength;
+		fundamental = current.fundamental.strength >= PRESENCE ? current.fundamental.frequency : Double.NaN;
+		octave = current.octave.strength >= PRESENCE ? current.octave.frequency : Double.NaN;
+
+		if(handler != null) {
+			handler.handleTarget(this, audioEvent);
+		}
+		return true;
+	}
+
+/**
+ * Adds a short buffer's new samples to history
+ * @return history once it holds MIN_WINDOW samples that join up, otherwise null
+ */
+	private float[] accumulate(float[] buffer, long position) {
+		long hop = position - historyPosition;
+		historyPosition = position;
+		int fresh = (int) Math.min(buffer.length, hop);
+		if(hop <= 0 || hop > buffer.length) {
+			// first buffer, or buffers were skipped by a gate: the history no longer joins up with this buffer
+			fresh = buffer.length;
+			filled = 0;
+		}
+		System.arraycopy(history, fresh, history, 0, history.length - fresh);
+		System.arraycopy(buffer, buffer.length - fresh, history, history.length - fresh, fresh);
+		filled = Math.min(history.length, filled + fresh);
+		return filled < history.length ? null : history;
+	}
+
+/**
+ * Builds the Hann window for a buffer size; only runs when the buffer size changes
+ */
+	private void buildWindow(int size) {
+		window = new float[size];
+		windowed = new float[size];
+		double sum = 0;
+		double sumSquares = 0;
+		for(int i = 0; i < size; i++) {
+			window[i] = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * i / (size - 1)));
+			sum += window[i];
+			sumSquares += window[i] * window[i];
+		}
+		toneGain = sum * sum / (2 * sumSquares);
+		lastPosition = Long.MIN_VALUE;
+	}
+
+/**
+ * Standard AudioProcessor method; nothing needs to be released
+ */
+	@Override
+	public void processingFinished() {
+	}
+
+/**
+ * Basic get method for the double fundamental
+ * @return The refined frequency in hz near the target's open note, or NaN if it is not present in the latest buffer
+ */
+	public double getFundamental() {
+		return fundamental;
+	}
+
+/**
+ * Basic get method for the double octave
+ * @return The refined frequency in hz near the target's octave, or NaN if it is not present in the latest buffer
+ */
+	public double getOctave() {
+		return octave;
+	}
+
+/**
+ * Basic get method for the double fundamentalStrength
+ * @return The share of the latest buffer's energy held near the target's open note, from 0 to 1
+ */
+	public double getFundamentalStrength() {
+		return fundamentalStrength;
+	}
+
+/**
+ * Basic get method for the double octaveStrength
+ * @return The share of the latest buffer's energy held near the target's octave, from 0 to 1
+ */
+	public double getOctaveStrength() {
+		return octaveStrength;
+	}
+
+/**
+ * Basic get method for the target's open frequency
+ * @return The frequency in hz the fundamental bank is centred on
+ */
+	public double getTarget() {
+		return bank.fundamental.centre;
+	}
+
+/**
+ * The pair of filter banks for one target
+ */
+	private static class Bank {
+		final Region fundamental;
+		final Region octave;
+
+		Bank(Region fundamental, Region octave) {
+			this.fundamental = fundamental;
+			this.octave = octave;
+		}
+	}
+
+/**
+ * One bank of Goertzel filters spaced evenly in cents around a centre frequency. The coefficients are fixed when
+ * the bank is built; the rest of its state belongs to the audio thread.
+ */
+	private class Region {
+		final double centre;
+		final double[] frequencies = new double[PROBES];
+		final double[] coefficients = new double[PROBES];
+		final double[] cosines = new double[PROBES];
+		final double[] sines = new double[PROBES];
+		final double[] real = new double[PROBES], imaginary = new double[PROBES];
+		final double[] lastReal = new double[PROBES], lastImaginary = new double[PROBES];
+		final double[] power = new double[PROBES];
+		boolean primed;
+		double frequency = Double.NaN;
+		double strength;
+
+		Region(double centre) {
+			this.centre = centre;
+			for(int p = 0; p < PROBES; p++) {
+				frequencies[p] = centre * Math.pow(2, (p * STEP_CENTS - SEARCH_CENTS) / 1200);
+				double omega = 2 * Math.PI * frequencies[p] / sampleRate;
+				cosines[p] = Math.cos(omega);
+				sines[p] = Math.sin(omega);
+				coefficients[p] = 2 * cosines[p];
+			}
+		}
+
+		/**
+		 * Runs every filter over the windowed buffer, then estimates the frequency of the strongest one
+		 */
+		void measure(float[] samples, double energy, long hop) {
+			int peak = 0;
+			for(int p = 0; p < PROBES; p++) {
+				double coefficient = coefficients[p];
+				double s1 = 0;
+				double s2 = 0;
+				for(int i = 0; i < samples.length; i++) {
+					double s0 = samples[i] + coefficient * s1 - s2;
+					s2 = s1;
+					s1 = s0;
+				}
+				real[p] = s1 - cosines[p] * s2;
+				imaginary[p] = sines[p] * s2;
+				power[p] = real[p] * real[p] + imaginary[p] * imaginary[p];
+				if(power[p] > power[peak]) {
+					peak = p;
+				}
+			}
+			strength = energy <= 0 ? 0 : Math.min(1, power[peak] / (toneGain * energy));
+
+			// coarse estimate: parabola through the log power of the strongest filter and its neighbours
+			double offset = 0;
+			if(peak > 0 && peak < PROBES - 1) {
+				double left = Math.log(power[peak - 1] + 1e-30);
+				double centreLog = Math.log(power[peak] + 1e-30);
+				double right = Math.log(power[peak + 1] + 1e-30);
+				double denominator = left - 2 * centreLog + right;
+				if(denominator < 0) {
+					offset = 0.5 * (left - right) / denominator;
+				}
+			}
+			double coarse = frequencies[peak] * Math.pow(2, offset * STEP_CENTS / 1200);
+			frequency = coarse;
+
+			// fine estimate: the filter's phase advances by 2*pi*f*hop/sampleRate between buffers. The coarse estimate
+			// picks the right turn as long as it is within half a turn's worth of hz
+			double stepHz = frequencies[peak] * (Math.pow(2, STEP_CENTS / 1200) - 1);
+			if(primed && hop > 0 && sampleRate / (2.0 * hop) > 2 * stepHz) {
+				double advance = Math.atan2(imaginary[peak] * lastReal[peak] - real[peak] * lastImaginary[peak],
+						real[peak] * lastReal[peak] + imaginary[peak] * lastImaginary[peak]);
+				double expected = 2 * Math.PI * coarse * hop / sampleRate;
+				double deviation = advance - expected;
+				deviation -= 2 * Math.PI * Math.rint(deviation / (2 * Math.PI));
+				frequency = (expected + deviation) * sampleRate / (2 * Math.PI * hop);
+			}
+
+			System.arraycopy(real, 0, lastReal, 0, PROBES);
+			System.arraycopy(imaginary, 0, lastImaginary, 0, PROBES);
+			primed = true;
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package client;
+
+import be.tarsos.dsp.AudioEvent;
+import be.tarsos.dsp.pitch.PitchDetectionHandler;
+import be.tarsos.dsp.pitch.PitchDetectionResult;
+
+/**
+ * This class acts as the pitch handler behind the tuner and scale practice, and is the core of the application's
+ * sound processing. It runs on the audio thread for every buffer the pitch processor analyses: while a tool is open,
+ * every pitch that passes the gate goes through the NoteSmoother, and whenever what a display would show has changed
+ * the smoothed frequency, nearest note and cents are published to Sound together. Nothing is allocated here in steady
+ * state; console output only happens when diagnostics is turned on.
+ * @author Jonathan Novins
+ * @version 1.0
+ */
+public class TunerPitchHandler implements PitchDetectionHandler {
+
+/**
+ * Pitches at or below this frequency in hz are ignored
+ */
+	public static final float MIN_PITCH = 50;
+
+/**
+ * Pitches whose probability is at or below this are ignored
+ */
+	public static final float MIN_PROBABILITY = .9f;
+
+/**
+ * The Sound Object results are published to, and whose soundRun toggle decides whether they are
+ */
+	private final Sound sound;
+
+/**
+ * Median filter and note-boundary hysteresis between the detector and sound
+ */
+	private final NoteSmoother noteSmoother;
+
+/**
+ * Note names indexed like the NoteSmoother's nearest index, used for diagnostics
+ */
+	private final String[] noteNames;
+
+/**
+ * Whether every published pitch is also printed to the console
+ */
+	private final boolean diagnostics;
+
+/**
+ * Number of pitches published to sound
+ */
+	private long published;
+
+/**
+ * Constructs a TunerPitchHandler
+ * @param sound The Sound Object to publish to
+ * @param noteSmoother The NoteSmoother every accepted pitch is passed through; only used on the audio thread
+ * @param noteNames Note names indexed like the NoteSmoother's nearest index
+ * @param diagnostics Whether to print every published pitch to the console
+ */
+	public TunerPitchHandler(Sound sound, NoteSmoother noteSmoother, String[] noteNames, boolean diagnostics) {
+		this.sound = sound;
+		this.noteSmoother = noteSmoother;
+		this.noteNames = noteNames;
+		this.diagnostics = diagnostics;
+	}
+
+/**
+ * Passes a detected pitch through the gate and the NoteSmoother and publishes it to sound if a display would change
+ */
+	@Override
+	public void handlePitch(PitchDetectionResult pitchDetectionResult, AudioEvent audioEvent) {
+		if(sound.getSoundRun() != 1) { // only while a tool that listens, such as the tuner or scale practice, is open
+			return;
+		}
+		float noteFreq = pitchDetectionResult.getPitch();
+		float noteProb = pitchDetectionResult.getProbability();
+		if(noteFreq <= MIN_PITCH || noteProb <= MIN_PROBABILITY) {
+			return;
+		}
+		if(!noteSmoother.update(noteFreq, audioEvent.getTimeStamp())) {
+			return; // nothing a display would show has changed
+		}
+		noteFreq = noteSmoother.getFrequency();
+		int nearestIndex = noteSmoother.getNearestIndex(); // closest whole note, only changing once the pitch is clearly past a boundary
+		float noteCents = noteSmoother.getCents();
+		sound.publishPitch(noteFreq, noteProb, nearestIndex, noteCents, audioEvent.getTimeStamp()); // readers always see one consistent frame
+		published++;
+
+		if(diagnostics) { // string building is kept off the audio thread unless diagnostics are requested
+			System.out.println("CURRENT DETECTED MIC INPUT[]\t" + audioEvent.getTimeStamp() + "\t" + noteFreq);
+			System.out.println(noteProb);
+			System.out.println("Nearest note is: " + noteNames[nearestIndex]);
+		}
+	}
+
+/**
+ * Basic get method for the number of pitches published to sound. Should only be read on the audio thread, or once
+ * it has stopped.
+ * @return The number of published pitches
+ */
+	public long getPublished() {
+		return published;
+	}
+}
@@ -0,0 +1,116 @@
+package userInterface;
+
+import java.util.concurrent.ConcurrentHashMap;
+import javafx.scene.image.Image;
+import javafx.scene.text.Font;
+
+/**
+ * This class holds every image and the digital-7 font once they have been decoded, so each window reuses them instead
+ * of reading and decoding the same files every time it opens. Images and fonts may be loaded from any thread, which
+ * lets startup decode them in the background while the launcher is being built.
+ * @author Jonathan Novins
+ * @version 1.0
+ */
+public class AssetCache {
+
+/**
+ * The font the tuner draws its note and over/under symbols in
+ */
+	public static final String DIGITAL_FONT = "file:resources/fonts/digital-7.ttf";
+
+/**
+ * The launcher window's background
+ */
+	public static final String LAUNCHER_BACKGROUND = "file:resources/images/environment/launcherBackground.png";
+
+/**
+ * Background shared by the tuner, scale choice and intonation windows
+ */
+	public static final String TOOL_BACKGROUND = "file:resources/images/environment/tunerback.jpg";
+
+/**
+ * Picture beside the tuner's note
+ */
+	public static final String TUNER_PICTURE = "file:resources/images/environment/tunerPic.png";
+
+/**
+ * Background of the login and create account windows
+ */
+	public static final String LOGIN_BACKGROUND = "file:resources/images/environment/loginBackground.jpg";
+
+/**
+ * Intonation status icons
+ */
+	public static final String STATUS_NOT_FINISHED = "file:resources/images/status/notfinished.png",
+			STATUS_WAITING = "file:resources/images/status/waiting.png",
+			STATUS_FINISHED = "file:resources/images/status/finished.png";
+
+/**
+ * Every image a window may open with, apart from the launcher background
+ */
+	public static final String[] WINDOW_IMAGES = {TOOL_BACKGROUND, TUNER_PICTURE, LOGIN_BACKGROUND, STATUS_NOT_FINISHED,
+			STATUS_WAITING, STATUS_FINISHED};
+
+/**
+ * Decoded images keyed by URL
+ */
+	private final ConcurrentHashMap<String, Image> images = new ConcurrentHashMap<String, Image>();
+
+/**
+ * The digital-7 font keyed by size
+ */
+	private final ConcurrentHashMap<Double, Font> digitalFonts = new ConcurrentHashMap<Double, Font>();
+
+/**
+ * The name digital-7 registered under once its file has been loaded, or null before
+ */
+	private volatile String digitalFontName;
+
+/**
+ * Finds an image, decoding it the first time it is asked for
+ * @param url The image's URL
+ * @return The decoded image
+ */
+	public Image image(String url) {
+		return images.computeIfAbsent(url, Image::new);
+	}
+
+/**
+ * Finds the digital-7 font at a size. The font file is only read the first time; every other size is derived from it.
+ * @param size The point size
+ * @return The font, or null if the font file could not be loaded
+ */
+	public Font digitalFont(double size) {
+		Font font = digitalFonts.get(size);
+		if(font != null) {
+			return font;
+		}
+		synchronized(this) {
+			if(digitalFontName == null) {
+				font = Font.loadFont(DIGITAL_FONT, size);
+				if(font == null) {
+					return null;
+				}
+				digitalFontName = font.getName();
+			}
+			else {
+				font = new Font(digitalFontName, size);
+			}
+		}
+		Font previous = digitalFonts.putIfAbsent(size, font);
+		return previous != null ? previous : font;
+	}
+
+/**
+ * Decodes every window image and loads the tuner's fonts, so no window waits on them when it first opens
+ * @return This cache
+ */
+	public AssetCache preloadWindows() {
+		for(String url : WINDOW_IMAGES) {
+			image(url);
+		}
+		digitalFont(120);
+		digitalFont(60);
+		return this;
+	}
+}
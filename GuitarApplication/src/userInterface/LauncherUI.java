@@ -1,13 +1,11 @@
 package userInterface;
 
-import java.sql.*;
-import javafx.concurrent.*;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CompletableFuture;
 import be.tarsos.dsp.AudioDispatcher;
-import be.tarsos.dsp.AudioEvent;
+import be.tarsos.dsp.AudioProcessor;
 import be.tarsos.dsp.pitch.PitchDetectionHandler;
-import be.tarsos.dsp.pitch.PitchDetectionResult;
-import be.tarsos.dsp.pitch.PitchProcessor;
-import be.tarsos.dsp.pitch.PitchProcessor.PitchEstimationAlgorithm;
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.scene.Scene;
@@ -20,13 +18,31 @@ import javafx.scene.shape.Ellipse;
 import javafx.scene.text.Font;
 import javafx.scene.text.Text;
 import javafx.stage.Stage;
+import client.AdaptiveWindowProcessor;
+import client.AsyncDBConnect;
+import client.CaptureProfile;
+import client.CaptureRing;
 import client.DBConnect;
+import client.DecimatingPitchProcessor;
+import client.DetectorProcessor;
+import client.EnsemblePitchProcessor;
+import client.BlockedYin;
+import client.IdleGate;
+import client.IntonationEngine;
+import client.NoiseGate;
+import client.NoteSmoother;
+import client.NoteTable;
+import client.PitchSnapshot;
+import client.ProfileMeter;
 import client.Sound;
+import client.StartupOrchestrator;
+import client.StrumTuner;
+import client.TunerPitchHandler;
 
 /**
  * This class is in charge of running all of the application level code. This includes sound processing,
  * javafx stage work, Thread task managements, and all other levels of function. Imports for this class
- * include java.sql classes, javafx concurrency classes, TarsosDSP library classes, javafx stage/scene controls,
+ * include java.util.concurrent classes, javafx concurrency classes, TarsosDSP library classes, javafx stage/scene controls,
  * and the DBConnect and Sound classes from the client package.
  * @author Jonathan Novins
  * @version 1.3.4
@@ -79,9 +95,57 @@ public class LauncherUI extends Application{
 	public Sound sound = new Sound();
 	
 /**
- * The instantiated DBConnect Object that acts for all database related actions
+ * The instantiated DBConnect Object that acts for all database related actions; constructing it does not touch the database
  */
 	public DBConnect ghDBConnect = new DBConnect();
+
+/**
+ * Runs ghDBConnect's queries off the JavaFX thread; the login and create account windows only update once a result arrives.
+ * It also opens the first connection in the background, so the launcher shows without waiting for the database.
+ */
+	public AsyncDBConnect ghAsyncDB = new AsyncDBConnect(ghDBConnect);
+	
+/**
+ * Every image and the digital-7 font, decoded once at startup and shared by all windows
+ */
+	public AssetCache assets = new AssetCache();
+	
+/**
+ * Runs the audio, asset and database phases of start() concurrently and reports how long each took
+ */
+	public StartupOrchestrator startup;
+	
+/**
+ * Inline style shared by the launcher and scale choice buttons; each button adds its own -fx-font-size
+ */
+	public final static String BUTTON_STYLE = "-fx-background-color: \r\n" + 
+			"        #090a0c,\r\n" + 
+			"        linear-gradient(#38424b 0%, #1f2429 20%, #191d22 100%),\r\n" + 
+			"        linear-gradient(#20262b, #191d22),\r\n" + 
+			"        radial-gradient(center 50% 0%, radius 100%, rgba(163,163,163,0.9), rgba(255,255,255,0));\r\n" + 
+			"    -fx-background-radius: 5,4,3,5;\r\n" + 
+			"    -fx-background-insets: 0,1,2,0;\r\n" + 
+			"    -fx-text-fill: white;\r\n" + 
+			"    -fx-effect: dropshadow( three-pass-box , rgba(0,0,0,0.6) , 5, 0.0 , 0 , 1 );\r\n" + 
+			"    -fx-font-family: \"Impact\";\r\n" + 
+			"    -fx-text-fill: linear-gradient(white, #d0d0d0);\r\n" + 
+			"    -fx-padding: 10 20 10 20;\r\n";
+	
+/**
+ * BUTTON_STYLE with a darker highlight, used while the mouse is over a button
+ */
+	public final static String BUTTON_HOVER_STYLE = "-fx-background-color: \r\n" + 
+			"        #090a0c,\r\n" + 
+			"        linear-gradient(#38424b 0%, #1f2429 20%, #191d22 100%),\r\n" + 
+			"        linear-gradient(#20262b, #191d22),\r\n" + 
+			"        radial-gradient(center 50% 0%, radius 100%, rgba(73,73,73,0.9), rgba(255,255,255,0));\r\n" + 
+			"    -fx-background-radius: 5,4,3,5;\r\n" + 
+			"    -fx-background-insets: 0,1,2,0;\r\n" + 
+			"    -fx-text-fill: white;\r\n" + 
+			"    -fx-effect: dropshadow( three-pass-box , rgba(0,0,0,0.6) , 5, 0.0 , 0 , 1 );\r\n" + 
+			"    -fx-font-family: \"Impact\";\r\n" + 
+			"    -fx-text-fill: linear-gradient(white, #d0d0d0);\r\n" + 
+			"    -fx-padding: 10 20 10 20;\r\n";
 	
 /**
  * The 'running' String that will continually hold the value of the currently logged in user (DEFAULT = Guest)
@@ -105,24 +169,25 @@ public class LauncherUI extends Application{
  */
 	public int waitingCycleRun = 0; // when 1, proceed to rotate waiting symbols in intonation tool
 	
+	// The equal-temperament table that every nearest-note and cents lookup is served from
+/**
+ * The NoteTable responsible for all nearest-note and cents lookups. A4 defaults to 440hz and can be changed with
+ * -Dguitarhelper.a4=&lt;hz&gt;
+ */
+	public final static NoteTable noteTable = new NoteTable(Double.parseDouble(System.getProperty("guitarhelper.a4", "440")));
+	
 	// An array that will represent the note String that run parallel with the noteFreqArray
 /**
  * The array that is responsible for holding all required letter-notes in the correct order (parallels to noteFreqArray)
  */
-	public final static String[] noteArray = new String[] {"D#","E","F","F#","G","G#","A","A#","B","C","C#","D",
-									   "D#","E","F","F#","G","G#","A","A#","B","C","C#","D",
-									   "D#","E","F","F#","G","G#","A","A#","B","C","C#","D",
-									   "D#","E","F","F#","G","G#","A","A#","B","C","C#","D",};
+	public final static String[] noteArray = noteTable.getNoteNames();
 	                           
 	// An array that represents note frequencies picked up by the AudioDispatcherFactory; Runs parallel to the noteArray array above
 /**
  * The array that is responsible for holding all required letter-associated-frequencies in the correft order (parallels 
- * to noteArray)
+ * to noteArray). Built from noteTable, so it always matches the configured reference pitch.
  */
-	public final static Double[] noteFreqArray = new Double[] {77.78, 82.41, 87.31, 92.64, 97.88, 103.46, 110.5, 117.0, 123.25, 131.8, 138.45, 147.0, 
-										   155.45, 165.5, 174.25, 187.0, 196.4, 208.0, 220.6, 234.8, 246.0, 263.0, 277.5, 294.3,
-										   312.0, 328.0, 350.0, 368.0, 392.0, 417.0, 440.0, 467.0, 494.0, 524.0, 556.0, 589.0,
-										   662.0, 659.0, 698.0, 738.6, 787.0, 834.0, 886.5, 938.0, 991.3, 1046.5, 1108.73, 1174.66};
+	public final static double[] noteFreqArray = noteTable.getFrequencies();
 	
 	// A double that gives the class global access to the current value of noteFreq (the current frequency being picked up by the listening device)
 	// Defaults to -1 because AudioDispacherFactory will return -1 anyway if mic action is not loud enough to be considered a proper note
@@ -141,10 +206,100 @@ public class LauncherUI extends Application{
 	public Thread soundLoop;
 	
 /**
- * 	Java Concurrency Task that will be embedded in the soundLoop Thread that will be in charge of making UI related updates
- * throughout the applications lifetime
+ * 	AnimationTimer that is built once in start() and runs only while the tuner is showing. It pulls the most recent pitch
+ * from sound once per display pulse, so UI work is bounded by the refresh rate instead of the audio buffer rate
+ */
+	public AnimationTimer updateTuner;
+	
+/**
+ * The note index and over/under level that the tuner is currently displaying, packed into one int (-1 when nothing
+ * has been drawn yet). Used by updateTuner to skip pulses where the display would not change
+ */
+	public int tunerDisplayState = -1;
+	
+/**
+ * The PitchSnapshot that updateTuner reads into on every pulse. Allocated once so reading it never creates garbage
+ */
+	public PitchSnapshot tunerSnapshot = new PitchSnapshot();
+	
+/**
+ * A boolean that toggles per-frame console output from the sound loop. Left off by default so that no Strings are built
+ * on the audio thread; can be turned on with -Dguitarhelper.diagnostics=true
+ */
+	public static boolean diagnostics = Boolean.getBoolean("guitarhelper.diagnostics");
+	
+/**
+ * The capture profile shared by the dispatcher and the pitch processor. Defaults to LOW_LATENCY and can be changed
+ * with the --profile=&lt;low-latency|standard|high-accuracy&gt; launch argument
+ */
+	public CaptureProfile captureProfile = CaptureProfile.LOW_LATENCY;
+	
+/**
+ * What the capture thread discards when analysis falls behind. Defaults to DROP_OLDEST and can be changed with the
+ * --overflow=&lt;drop-oldest|drop-newest&gt; launch argument
+ */
+	public CaptureRing.OverflowPolicy overflowPolicy = CaptureRing.OverflowPolicy.DROP_OLDEST;
+	
+/**
+ * Measures the real update rate of the capture profile; its report is printed whenever a tool window closes
+ */
+	public ProfileMeter profileMeter;
+	
+/**
+ * Stops the processor chain ahead of the pitch processor while no tool window is open, so YIN only runs when its
+ * result is actually used
  */
-	public Task<Void> updateTuner;
+	public IdleGate idleGate;
+	
+/**
+ * Stops the processor chain ahead of the pitch processor for buffers quieter than the adaptive noise floor, so
+ * pitch estimation is skipped during the silence between notes
+ */
+	public NoiseGate noiseGate;
+	
+/**
+ * Median filter and note-boundary hysteresis between the pitch detector and sound, so the displays only receive
+ * stable changes. Only used on the audio thread.
+ */
+	public NoteSmoother noteSmoother = new NoteSmoother(noteTable);
+	
+/**
+ * Reports the tuning of all six strings from one strummed chord; only attached to the dispatcher while strum mode is on
+ */
+	public StrumTuner strumTuner;
+	
+/**
+ * Whether the tuner window is currently showing every string at once instead of the single detected note
+ */
+	public boolean strumMode = false;
+	
+/**
+ * Text nodes holding each string's deviation in strum mode, low E first
+ */
+	public Text[] strumTexts = new Text[StrumTuner.STRINGS];
+	
+/**
+ * Reused by updateTuner to copy the strum tuner's readings without allocating on every pulse
+ */
+	public float[] strumCents = new float[StrumTuner.STRINGS];
+	
+/**
+ * The whole cents value each strum text currently displays, so a text is only updated when its value changes
+ */
+	public int[] strumShown = new int[StrumTuner.STRINGS];
+	
+/**
+ * The pitch processor behind the tuner and scale practice; swapped out of the dispatcher while the intonation tool is
+ * open. YIN (through BlockedYin) by default, or an EnsemblePitchProcessor voting between YIN, MPM and FFT_YIN with the --pitch=ensemble
+ * launch argument. An AdaptiveWindowProcessor with --profile=adaptive. With --decimate=n (4 is a good choice) YIN runs on audio decimated to an nth of the sample rate
+ */
+	public AudioProcessor pitchProcessor;
+	
+/**
+ * Walks each string through the intonation check on the audio thread; its detector takes the place of pitchProcessor
+ * while the intonation tool is open
+ */
+	public IntonationEngine intonationEngine;
 
 /**
  * Standard javafx start method that will begin loading and executing the user interface level of the application
@@ -159,232 +314,156 @@ public class LauncherUI extends Application{
 		// Set soundRun equal to 0 to prevent any note calculations/output from taking place
 		soundRun = 0;
 		
-		// Loop that attempts to connect to the computer's default sound device only if it has not already done so
+		// The launcher background, the other windows' images and fonts, and the database connection are all readied on
+		// threads of their own, alongside the audio line opened below, so the launcher does not wait for any of them
+		startup = new StartupOrchestrator();
+		CompletableFuture<Image> launcherBackgroundReady = startup.submit("launcher background", () -> assets.image(AssetCache.LAUNCHER_BACKGROUND));
+		startup.submit("window assets", assets::preloadWindows);
+		startup.track("database", ghAsyncDB.ready(), ghAsyncDB.getWarmUpStartNanos()); // began when ghAsyncDB was constructed
 		
-		dispatcher = sound.micConnect(dispatcher);
+		captureProfile = CaptureProfile.fromName(getParameters().getNamed().get("profile"));
+		overflowPolicy = CaptureRing.OverflowPolicy.fromName(getParameters().getNamed().get("overflow"));
+		String deviceName = getParameters().getNamed().get("device");
+		String pitchName = getParameters().getNamed().get("pitch");
+		int decimation = decimationFactor(getParameters().getNamed().get("decimate")); // checked here so a bad value cannot fail the audio phase
+		if(pitchName != null && !"ensemble".equalsIgnoreCase(pitchName)) {
+			System.out.println("***UNKNOWN PITCH ALGORITHM \"" + pitchName + "\", USING YIN***");
+		}
 		
-		PitchDetectionHandler handler = new PitchDetectionHandler() { // Custom Object from TarsosDSP that picks up when a pitch is available from the microphone
-	        /**
-	         * handlePitch is the core of the applications sound processing. Every frequency that is picked up and deemed
-	         * acceptable will run through the intended portions of this method
-	         */
+		// Pulled once per JavaFX pulse while the tuner is showing; the audio thread only publishes the latest pitch into sound
+		updateTuner = new AnimationTimer() {
+			/**
+			 * Standard handle method for the updateTuner AnimationTimer. Reads the values most recently published in sound
+			 * and only touches the tuner's note text and over/under symbols when what they display has actually changed.
+			 */
 			@Override
-	        public void handlePitch(PitchDetectionResult pitchDetectionResult,
-            		AudioEvent audioEvent) { // handlePitch method that will run as long as the dispatcher is set to run (called by the run(), start(), etc, methods from the Thread soundLoop
-	            		
-	            if(sound.getSoundRun() == 1) { // This loop will only run if executed in a space where soundRun is set to 0 such as the tuner, scale practice, or intonation checker
-	            		
-	            	String nearestNote = null; // String that will continually update based on the equivalent note of the most recently picked up frequency
-	           		int nearestIndex = sound.getNearestIndex();
-	                	
-	            		
-	           		if(pitchDetectionResult.getPitch() > 50 && (pitchDetectionResult.getProbability() > .9)) { // this block will only execute if there is a proper pitch picked up from the dispatcher
-	               		System.out.println("CURRENT DETECTED MIC INPUT[]\t" + audioEvent.getTimeStamp() + "\t" + pitchDetectionResult.getPitch()); // prints out current time stamp and exact frequency being picked up
-	               		System.out.println(pitchDetectionResult.getProbability());
-	               		float noteFreq = pitchDetectionResult.getPitch(); // sets the pitch detection result to a variable for later use
-	               		sound.setNoteFreq(noteFreq);
-	               		float noteProb = pitchDetectionResult.getProbability();
-	               		sound.setNoteProb(noteProb);
-	               		double distance = Math.abs(noteFreqArray[0] - noteFreq); // finds the distance between the first array value and the frequency
-	                	
-	               		for(int i = 1; i < noteFreqArray.length; i++) { // block that finds the closest whole note to the noteFreq
-	               			double testDist = Math.abs(noteFreqArray[i] - noteFreq);
-	              			if(testDist < distance) {
-	               				nearestIndex = i;
-	               				distance = testDist;
-	               			}
-	               		}
-	               		sound.setNearestIndex(nearestIndex);
-                		nearestNote = noteArray[nearestIndex]; // sets the nearest note to a variable for future use
-                		System.out.println("Nearest note is: " + nearestNote); // prints to console for development purposes
-	                	
-	               		if(tunerStage.isShowing()) {
-	               			updateTuner = new Task<Void>() {
-	            				/**
-	            				 * Call is a standard Task related method that is embedded within the handlePitch method.
-	            				 * It acts as the primary execution method for the updateTuner Task.
-	            				 */
-	               				@Override
-	            				protected Void call() {
-	            					
-	            					double noteDiff = 0;
-	            					double noteFreq = sound.getNoteFreq();
-	            					double nearestFreq = noteFreqArray[sound.getNearestIndex()];
-	            					double maxUpperBound = (noteFreqArray[sound.getNearestIndex()+1] - nearestFreq) /2;
-	            					double maxLowerBound = (nearestFreq - noteFreqArray[sound.getNearestIndex()-1]) /2;
-	            					
-	            					if(noteFreq > nearestFreq) {
-	            						noteDiff = noteFreq - nearestFreq;
-	            					}
-	            					else {
-	            						noteDiff = nearestFreq - noteFreq;
-	            					}
-	            	
-	            					noteOver.setText("");
-	            					noteOver2.setText("");
-	            					noteOver3.setText("");
-	            					noteUnder.setText("");
-	            					noteUnder2.setText("");
-	            					noteUnder3.setText("");
-	            					System.out.println("");
-	            					System.out.println(noteDiff);
-	            					System.out.println("");
-	            					
-	            					
-	            					
-	            					if(noteDiff > (maxUpperBound * .05) && noteDiff < (maxUpperBound * .33)) {
-	            						noteOver.setText("+");
-	            					}
-	            					else if(noteDiff > (maxUpperBound * .33) && noteDiff < (maxUpperBound *.66)) {
-	            						noteOver.setText("+");
-	            						noteOver2.setText("+");
-	            					}
-	            					else if(noteDiff > (maxUpperBound * .66) && noteDiff < (maxUpperBound * .999)) {
-	            						noteOver.setText("+");
-	            						noteOver2.setText("+");
-	            						noteOver3.setText("+");
-	            					}
-	            					else if(noteDiff > (maxLowerBound * .05) && noteDiff < (maxLowerBound * .33)){
-	            						noteUnder.setText("-");
-	            					}
-	            					else if (noteDiff > (maxLowerBound * .33) && noteDiff < (maxLowerBound * .66)) {
-	            						noteUnder.setText("-");
-	            						noteUnder2.setText("-");
-	            					}
-	            					else if(noteDiff > (maxLowerBound * .66) && noteDiff < (maxLowerBound * .999)) {
-	            						noteUnder.setText("-");
-	            						noteUnder2.setText("-");
-	            						noteUnder3.setText("-");
-	            					}
-	            					
-	            					noteText.setText(noteArray[sound.getNearestIndex()]);					
-	            	                return null ;
-	            				}
-	            	        }; 
-	               			updateTuner.run();
-	               		}
-	               		
-	               		
-	               	}
-	           	}
-	           }  
-	       }; 
-	        dispatcher.addAudioProcessor(new PitchProcessor(PitchEstimationAlgorithm.YIN, 44100, 1024, handler)); // adds an audio processor to the mic connection along with the desired pitch detection algorithm
-	        micConnect = 1; // toggle the value of micConnect to 1
-	        
-		soundLoop = new Thread(dispatcher); // declares a new thread that will run continuously in the background for dispatcher
-		soundLoop.start(); // starts the aforementioned thread
+			public void handle(long now) {
+				
+				if(strumMode) {
+					updateStrumTexts();
+				}
+				
+				sound.readSnapshot(tunerSnapshot);
+				if(tunerSnapshot.getSequence() == 0) {
+					return; // nothing has been published yet
+				}
+				
+				// the over/under symbols split the 50 cents between a note and its halfway point into thirds
+				float noteCents = tunerSnapshot.getNoteCents();
+				int nearestIndex = tunerSnapshot.getNearestIndex();
+				double noteDiff = Math.abs(noteCents) / 50.0;
+				int level = 0;
+				
+				if(noteDiff > .05 && noteDiff < .33) {
+					level = 1;
+				}
+				else if(noteDiff > .33 && noteDiff < .66) {
+					level = 2;
+				}
+				else if(noteDiff > .66 && noteDiff < .999) {
+					level = 3;
+				}
+				if(noteCents < 0) {
+					level = -level;
+				}
+				
+				int displayState = nearestIndex * 8 + level + 3;
+				if(displayState == tunerDisplayState) {
+					return;
+				}
+				tunerDisplayState = displayState;
+				
+				if(diagnostics) {
+					System.out.println("");
+					System.out.println(noteCents);
+					System.out.println("");
+				}
+				
+				noteOver.setText(level >= 1 ? "+" : "");
+				noteOver2.setText(level >= 2 ? "+" : "");
+				noteOver3.setText(level >= 3 ? "+" : "");
+				noteUnder.setText(level <= -1 ? "-" : "");
+				noteUnder2.setText(level <= -2 ? "-" : "");
+				noteUnder3.setText(level <= -3 ? "-" : "");
+				noteText.setText(noteArray[nearestIndex]);
+			}
+		};
+		
+		PitchDetectionHandler handler = new TunerPitchHandler(sound, noteSmoother, noteArray, diagnostics); // gates, smooths and publishes every detected pitch on the audio thread
+		// Opens the audio line and builds the processor chain on a startup thread; the tool buttons wait for it
+		CompletableFuture<Void> audioReady = startup.submit("audio", () -> {
+			dispatcher = sound.micConnect(dispatcher, captureProfile, overflowPolicy, deviceName); // without a device yet, capture waits for one
+			profileMeter = new ProfileMeter(captureProfile);
+			dispatcher.addAudioProcessor(profileMeter); // measures how often buffers really arrive with the chosen profile
+			idleGate = new IdleGate(sound);
+			dispatcher.addAudioProcessor(idleGate); // skips pitch detection entirely while no tool is open
+			noiseGate = new NoiseGate();
+			dispatcher.addAudioProcessor(noiseGate); // skips pitch detection for buffers that are only background noise
+			if(captureProfile == CaptureProfile.ADAPTIVE) { // the window follows the register being played
+				pitchProcessor = new AdaptiveWindowProcessor(captureProfile.getSampleRate(), handler);
+			}
+			else if("ensemble".equalsIgnoreCase(pitchName)) { // spare cores run extra estimators in parallel
+				pitchProcessor = new EnsemblePitchProcessor(EnsemblePitchProcessor.DEFAULT_ALGORITHMS, captureProfile.getSampleRate(),
+						captureProfile.getBufferSize(), handler);
+			}
+			else if(decimation > 1) { // guitar notes need a fraction of the capture bandwidth
+				pitchProcessor = new DecimatingPitchProcessor(captureProfile.getSampleRate(), captureProfile.getBufferSize(),
+						decimation, handler);
+			}
+			else {
+				pitchProcessor = new DetectorProcessor(new BlockedYin(captureProfile.getSampleRate(), captureProfile.getBufferSize()),
+						handler); // same results as TarsosDSP's YIN for a fraction of the work
+			}
+			dispatcher.addAudioProcessor(pitchProcessor); // adds an audio processor to the mic connection along with the desired pitch detection algorithm
+			intonationEngine = new IntonationEngine(sound, noteTable, captureProfile.getSampleRate(), Platform::runLater); // state transitions are handed to the FX thread
+			strumTuner = new StrumTuner(noteTable, captureProfile.getSampleRate()); // attached only while strum mode is on
+			micConnect = 1; // toggle the value of micConnect to 1
+			
+			soundLoop = new Thread(dispatcher, "audio-analysis"); // declares a new thread that will run continuously in the background for dispatcher; capture has its own thread inside sound
+			soundLoop.start(); // starts the aforementioned thread
+			return null;
+		});
 		
 		//This pane will serve as the general layout for the launcher window
 		Pane generalDisplay = new Pane();
 		generalDisplay.setPrefSize(626,626);
 		
-		//Sets up the background image for the launcher
-		Image launcherBackground = new Image("file:resources/images/environment/launcherBackground.png");
-		ImageView launcherBgView = new ImageView(launcherBackground);
+		//Sets up the background image for the launcher; if it is still being decoded it appears as soon as it is ready
+		ImageView launcherBgView = new ImageView(launcherBackgroundReady.getNow(null));
+		if(launcherBgView.getImage() == null) {
+			launcherBackgroundReady.thenAccept(image -> Platform.runLater(() -> launcherBgView.setImage(image)));
+		}
 		
 		//Tuner button serves to open the functional tuner window
 		Button tunerMenuButton = new Button("Tuner");
 		tunerMenuButton.setLayoutX(260);
 		tunerMenuButton.setLayoutY(220);
-		tunerMenuButton.setStyle("-fx-background-color: \r\n" + 
-				"        #090a0c,\r\n" + 
-				"        linear-gradient(#38424b 0%, #1f2429 20%, #191d22 100%),\r\n" + 
-				"        linear-gradient(#20262b, #191d22),\r\n" + 
-				"        radial-gradient(center 50% 0%, radius 100%, rgba(163,163,163,0.9), rgba(255,255,255,0));\r\n" + 
-				"    -fx-background-radius: 5,4,3,5;\r\n" + 
-				"    -fx-background-insets: 0,1,2,0;\r\n" + 
-				"    -fx-text-fill: white;\r\n" + 
-				"    -fx-effect: dropshadow( three-pass-box , rgba(0,0,0,0.6) , 5, 0.0 , 0 , 1 );\r\n" + 
-				"    -fx-font-family: \"Impact\";\r\n" + 
-				"    -fx-text-fill: linear-gradient(white, #d0d0d0);\r\n" + 
-				"    -fx-font-size: 32px;\r\n" + 
-				"    -fx-padding: 10 20 10 20;");
+		tunerMenuButton.setStyle(BUTTON_STYLE + "-fx-font-size: 32px;");
 		
 		//Block that changes formatting of button when mouse is hovered over it
 		tunerMenuButton.setOnMouseEntered( e -> {
-			tunerMenuButton.setStyle("-fx-background-color: \r\n" + 
-					"        #090a0c,\r\n" + 
-					"        linear-gradient(#38424b 0%, #1f2429 20%, #191d22 100%),\r\n" + 
-					"        linear-gradient(#20262b, #191d22),\r\n" + 
-					"        radial-gradient(center 50% 0%, radius 100%, rgba(73,73,73,0.9), rgba(255,255,255,0));\r\n" + 
-					"    -fx-background-radius: 5,4,3,5;\r\n" + 
-					"    -fx-background-insets: 0,1,2,0;\r\n" + 
-					"    -fx-text-fill: white;\r\n" + 
-					"    -fx-effect: dropshadow( three-pass-box , rgba(0,0,0,0.6) , 5, 0.0 , 0 , 1 );\r\n" + 
-					"    -fx-font-family: \"Impact\";\r\n" + 
-					"    -fx-text-fill: linear-gradient(white, #d0d0d0);\r\n" + 
-					"    -fx-font-size: 32px;\r\n" + 
-					"    -fx-padding: 10 20 10 20;");
+			tunerMenuButton.setStyle(BUTTON_HOVER_STYLE + "-fx-font-size: 32px;");
 		});
 		
 		//Block that sets the format of a button back to normal when the mouse leaves its hover space
 		tunerMenuButton.setOnMouseExited( e -> {
-			tunerMenuButton.setStyle("-fx-background-color: \r\n" + 
-					"        #090a0c,\r\n" + 
-					"        linear-gradient(#38424b 0%, #1f2429 20%, #191d22 100%),\r\n" + 
-					"        linear-gradient(#20262b, #191d22),\r\n" + 
-					"        radial-gradient(center 50% 0%, radius 100%, rgba(163,163,163,0.9), rgba(255,255,255,0));\r\n" + 
-					"    -fx-background-radius: 5,4,3,5;\r\n" + 
-					"    -fx-background-insets: 0,1,2,0;\r\n" + 
-					"    -fx-text-fill: white;\r\n" + 
-					"    -fx-effect: dropshadow( three-pass-box , rgba(0,0,0,0.6) , 5, 0.0 , 0 , 1 );\r\n" + 
-					"    -fx-font-family: \"Impact\";\r\n" + 
-					"    -fx-text-fill: linear-gradient(white, #d0d0d0);\r\n" + 
-					"    -fx-font-size: 32px;\r\n" + 
-					"    -fx-padding: 10 20 10 20;");
+			tunerMenuButton.setStyle(BUTTON_STYLE + "-fx-font-size: 32px;");
 		});
 		
 		//Scale practice button serves to open the functional scale practice window
 		Button scalePracticeButton = new Button("Scale Practice");
 		scalePracticeButton.setLayoutX(203);
 		scalePracticeButton.setLayoutY(300);
-		scalePracticeButton.setStyle("-fx-background-color: \r\n" + 
-				"        #090a0c,\r\n" + 
-				"        linear-gradient(#38424b 0%, #1f2429 20%, #191d22 100%),\r\n" + 
-				"        linear-gradient(#20262b, #191d22),\r\n" + 
-				"        radial-gradient(center 50% 0%, radius 100%, rgba(163,163,163,0.9), rgba(255,255,255,0));\r\n" + 
-				"    -fx-background-radius: 5,4,3,5;\r\n" + 
-				"    -fx-background-insets: 0,1,2,0;\r\n" + 
-				"    -fx-text-fill: white;\r\n" + 
-				"    -fx-effect: dropshadow( three-pass-box , rgba(0,0,0,0.6) , 5, 0.0 , 0 , 1 );\r\n" + 
-				"    -fx-font-family: \"Impact\";\r\n" + 
-				"    -fx-text-fill: linear-gradient(white, #d0d0d0);\r\n" + 
-				"    -fx-font-size: 32px;\r\n" + 
-				"    -fx-padding: 10 20 10 20;");
+		scalePracticeButton.setStyle(BUTTON_STYLE + "-fx-font-size: 32px;");
 		
 		//Block that changes formatting of button when mouse is hovered over it
 		scalePracticeButton.setOnMouseEntered( e -> {
-			scalePracticeButton.setStyle("-fx-background-color: \r\n" + 
-					"        #090a0c,\r\n" + 
-					"        linear-gradient(#38424b 0%, #1f2429 20%, #191d22 100%),\r\n" + 
-					"        linear-gradient(#20262b, #191d22),\r\n" + 
-					"        radial-gradient(center 50% 0%, radius 100%, rgba(73,73,73,0.9), rgba(255,255,255,0));\r\n" + 
-					"    -fx-background-radius: 5,4,3,5;\r\n" + 
-					"    -fx-background-insets: 0,1,2,0;\r\n" + 
-					"    -fx-text-fill: white;\r\n" + 
-					"    -fx-effect: dropshadow( three-pass-box , rgba(0,0,0,0.6) , 5, 0.0 , 0 , 1 );\r\n" + 
-					"    -fx-font-family: \"Impact\";\r\n" + 
-					"    -fx-text-fill: linear-gradient(white, #d0d0d0);\r\n" + 
-					"    -fx-font-size: 32px;\r\n" + 
-					"    -fx-padding: 10 20 10 20;");
+			scalePracticeButton.setStyle(BUTTON_HOVER_STYLE + "-fx-font-size: 32px;");
 		});
 		
 		//Block that sets the format of a button back to normal when the mouse leaves its hover space
 		scalePracticeButton.setOnMouseExited( e -> {
-			scalePracticeButton.setStyle("-fx-background-color: \r\n" + 
-					"        #090a0c,\r\n" + 
-					"        linear-gradient(#38424b 0%, #1f2429 20%, #191d22 100%),\r\n" + 
-					"        linear-gradient(#20262b, #191d22),\r\n" + 
-					"        radial-gradient(center 50% 0%, radius 100%, rgba(163,163,163,0.9), rgba(255,255,255,0));\r\n" + 
-					"    -fx-background-radius: 5,4,3,5;\r\n" + 
-					"    -fx-background-insets: 0,1,2,0;\r\n" + 
-					"    -fx-text-fill: white;\r\n" + 
-					"    -fx-effect: dropshadow( three-pass-box , rgba(0,0,0,0.6) , 5, 0.0 , 0 , 1 );\r\n" + 
-					"    -fx-font-family: \"Impact\";\r\n" + 
-					"    -fx-text-fill: linear-gradient(white, #d0d0d0);\r\n" + 
-					"    -fx-font-size: 32px;\r\n" + 
-					"    -fx-padding: 10 20 10 20;");
+			scalePracticeButton.setStyle(BUTTON_STYLE + "-fx-font-size: 32px;");
 		});
 		
 		//Intonation button serves to open the functional intonation checker window
@@ -401,14 +480,44 @@ public class LauncherUI extends Application{
 		accountChangeScreen.setLayoutX(305);
 		accountChangeScreen.setLayoutY(604);
 		
+		//Shows why the tools are unavailable if the audio phase fails
+		Text audioStatus = new Text("");
+		audioStatus.setFill(Color.WHITE);
+		audioStatus.setLayoutX(20);
+		audioStatus.setLayoutY(30);
+		
+		//Every tool listens to the microphone, so their buttons stay disabled until the audio phase has finished
+		tunerMenuButton.setDisable(true);
+		scalePracticeButton.setDisable(true);
+		intonationButton.setDisable(true);
+		audioReady.whenComplete((ignored, e) -> Platform.runLater(() -> {
+			if(e != null) { // the tools cannot work without the audio chain, so they stay disabled and say why
+				System.out.println("***AUDIO STARTUP FAILED: " + e + "***");
+				e.printStackTrace();
+				audioStatus.setText("Audio unavailable: " + e.getMessage());
+				return;
+			}
+			tunerMenuButton.setDisable(false);
+			scalePracticeButton.setDisable(false);
+			intonationButton.setDisable(false);
+		}));
+		
 		//Adds all existing nodes to the general display window
-		generalDisplay.getChildren().addAll(launcherBgView, tunerMenuButton, scalePracticeButton, intonationButton, accountChangeScreen, accountStatus);
+		generalDisplay.getChildren().addAll(launcherBgView, tunerMenuButton, scalePracticeButton, intonationButton, accountChangeScreen, accountStatus,
+				audioStatus);
 		
 		//Sets up the scene and shows the initial launcher window
 		Scene scene = new Scene(generalDisplay);
 		primaryStage.setScene(scene);
 		primaryStage.setTitle("Guitar Helper");
 		primaryStage.show();
+		System.out.println("***LAUNCHER SHOWN AFTER " + (System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime())
+				+ " ms (DATABASE " + (ghAsyncDB.isReady() ? "READY" : ghAsyncDB.ready().isDone() ? "UNAVAILABLE" : "STILL CONNECTING") + ")***");
+		startup.mark("launcher shown");
+		startup.allDone().thenRun(() -> {
+			System.out.println(startup.report());
+			startup.close();
+		});
 		
 		//
 		//
@@ -443,64 +552,119 @@ public class LauncherUI extends Application{
 			Pane tunerDisplay = new Pane();
 			tunerDisplay.setPrefSize(600, 600);
 			
-			Image tunerBkImg = new Image("file:resources/images/environment/tunerback.jpg");
+			Image tunerBkImg = assets.image(AssetCache.TOOL_BACKGROUND);
 			ImageView tunerImgView = new ImageView(tunerBkImg);
 			
 			noteText = new Text("E");
 			noteText.setFill(Color.WHITE);
 			noteText.setLayoutX(170);
 			noteText.setLayoutY(315);
-			noteText.setFont(Font.loadFont("file:resources/fonts/digital-7.ttf", 120));
+			noteText.setFont(assets.digitalFont(120));
 			
 			noteOver = new Text("+");
 			noteOver.setFill(Color.WHITE);
-			noteOver.setFont(Font.loadFont("file:resources/fonts/digital-7.ttf", 60));
+			noteOver.setFont(assets.digitalFont(60));
 			noteOver.setLayoutX(223);
 			noteOver.setLayoutY(295);
 			
 			noteOver2 = new Text("+");
 			noteOver2.setFill(Color.WHITE);
-			noteOver2.setFont(Font.loadFont("file:resources/fonts/digital-7.ttf", 60));
+			noteOver2.setFont(assets.digitalFont(60));
 			noteOver2.setLayoutX(246);
 			noteOver2.setLayoutY(295);
 			
 			noteOver3 = new Text("+");
-			noteOver3.setFont(Font.loadFont("file:resources/fonts/digital-7.ttf",60));
+			noteOver3.setFont(assets.digitalFont(60));
 			noteOver3.setFill(Color.WHITE);
 			noteOver3.setLayoutX(269);
 			noteOver3.setLayoutY(295);
 			
 			noteUnder = new Text("-");
 			noteUnder.setFill(Color.WHITE);
-			noteUnder.setFont(Font.loadFont("file:resources/fonts/digital-7.ttf", 60));
+			noteUnder.setFont(assets.digitalFont(60));
 			noteUnder.setLayoutX(145);
 			noteUnder.setLayoutY(295);
 			
 			noteUnder2 = new Text("-");
 			noteUnder2.setFill(Color.WHITE);
-			noteUnder2.setFont(Font.loadFont("file:resources/fonts/digital-7.ttf", 60));
+			noteUnder2.setFont(assets.digitalFont(60));
 			noteUnder2.setLayoutX(122);
 			noteUnder2.setLayoutY(295);
 			
 			noteUnder3 = new Text("-");
 			noteUnder3.setFill(Color.WHITE);
-			noteUnder3.setFont(Font.loadFont("file:resources/fonts/digital-7.ttf", 60));
+			noteUnder3.setFont(assets.digitalFont(60));
 			noteUnder3.setLayoutX(96);
 			noteUnder3.setLayoutY(295);
 			
-			Image tunerImage = new Image("file:resources/images/environment/tunerPic.png");
+			Image tunerImage = assets.image(AssetCache.TUNER_PICTURE);
 			ImageView tunerImageView = new ImageView(tunerImage);
 			tunerImageView.setLayoutX(-95);
 			tunerImageView.setLayoutY(25);
+			
+			//One text per string for strum mode, hidden until strum mode is turned on
+			for(int s = 0; s < StrumTuner.STRINGS; s++) {
+				strumTexts[s] = new Text(strumLabel(s) + "   --");
+				strumTexts[s].setFill(Color.WHITE);
+				strumTexts[s].setFont(Font.font("Calibri", 25));
+				strumTexts[s].setLayoutX(415);
+				strumTexts[s].setLayoutY(110 + s * 45);
+				strumTexts[s].setVisible(false);
+				strumShown[s] = Integer.MIN_VALUE;
+			}
+			
+			//Button that switches between tuning a single note and tuning every string from one strum
+			Button strumButton = new Button("Strum Mode");
+			strumButton.setFont(Font.font(14));
+			strumButton.setLayoutX(415);
+			strumButton.setLayoutY(540);
+			strumButton.setOnAction(e2 -> {
+				strumMode = !strumMode;
+				if(strumMode) {
+					strumTuner.reset();
+					dispatcher.addAudioProcessor(strumTuner);
+					strumButton.setText("Single Note");
+				}
+				else {
+					dispatcher.removeAudioProcessor(strumTuner);
+					strumButton.setText("Strum Mode");
+				}
+				for(int s = 0; s < StrumTuner.STRINGS; s++) {
+					strumTexts[s].setText(strumLabel(s) + "   --");
+					strumTexts[s].setVisible(strumMode);
+					strumShown[s] = Integer.MIN_VALUE;
+				}
+			});
+			
 			tunerDisplay.getChildren().addAll(tunerImgView, tunerImageView, noteText, noteOver, noteOver2, noteOver3, noteUnder, noteUnder2,
-					noteUnder3, tunerTitleText, tunerInfoText,divider);
+					noteUnder3, tunerTitleText, tunerInfoText,divider, strumButton);
+			tunerDisplay.getChildren().addAll(strumTexts);
 			
 			Scene tunerScene = new Scene(tunerDisplay);
 			tunerStage.setScene(tunerScene);
 			tunerStage.setTitle("Guitar Helper - Tuner");
 			tunerStage.show();
+			tunerDisplayState = -1;
+			profileMeter.reset();
+			updateTuner.start();
 			
 			tunerStage.setOnHidden(e2 -> {
+					updateTuner.stop();
+					if(strumMode) {
+						dispatcher.removeAudioProcessor(strumTuner);
+						strumMode = false;
+					}
+					System.out.println(profileMeter.report());
+					System.out.println(sound.getCaptureRing().report());
+					System.out.println(noteSmoother.report());
+					if(pitchProcessor instanceof EnsemblePitchProcessor) {
+						System.out.println(((EnsemblePitchProcessor) pitchProcessor).report());
+					}
+					if(pitchProcessor instanceof AdaptiveWindowProcessor) {
+						System.out.println(((AdaptiveWindowProcessor) pitchProcessor).report());
+					}
+					System.out.println(idleGate.report());
+					System.out.println(noiseGate.report());
 					sound.setSoundRun(0);
 					primaryStage.show();
 			});
@@ -513,13 +677,14 @@ public class LauncherUI extends Application{
 		//
 		scalePracticeButton.setOnAction(e -> {
 			soundRun = 1;
+			sound.setSoundRun(1);
 			primaryStage.hide();
 			
 			Stage scaleStage = new Stage();
 			Pane scaleDisplay = new Pane();
 			scaleDisplay.setPrefSize(400,200);
 			
-			Image scaleChoiceBkImg = new Image("file:resources/images/environment/tunerback.jpg");
+			Image scaleChoiceBkImg = assets.image(AssetCache.TOOL_BACKGROUND);
 			ImageView scaleChoiceBkImgView = new ImageView(scaleChoiceBkImg);
 			
 			Text scaleChoiceTxt = new Text("Select an option below.");
@@ -529,99 +694,27 @@ public class LauncherUI extends Application{
 			scaleChoiceTxt.setLayoutY(30);
 			
 			Button customScaleButton = new Button("Load Custom Scale");
-			customScaleButton.setStyle("-fx-background-color: \r\n" + 
-					"        #090a0c,\r\n" + 
-					"        linear-gradient(#38424b 0%, #1f2429 20%, #191d22 100%),\r\n" + 
-					"        linear-gradient(#20262b, #191d22),\r\n" + 
-					"        radial-gradient(center 50% 0%, radius 100%, rgba(163,163,163,0.9), rgba(255,255,255,0));\r\n" + 
-					"    -fx-background-radius: 5,4,3,5;\r\n" + 
-					"    -fx-background-insets: 0,1,2,0;\r\n" + 
-					"    -fx-text-fill: white;\r\n" + 
-					"    -fx-effect: dropshadow( three-pass-box , rgba(0,0,0,0.6) , 5, 0.0 , 0 , 1 );\r\n" + 
-					"    -fx-font-family: \"Impact\";\r\n" + 
-					"    -fx-text-fill: linear-gradient(white, #d0d0d0);\r\n" + 
-					"    -fx-font-size: 20px;\r\n" + 
-					"    -fx-padding: 10 20 10 20;");
+			customScaleButton.setStyle(BUTTON_STYLE + "-fx-font-size: 20px;");
 			customScaleButton.setOnMouseEntered( e2 -> {
-				customScaleButton.setStyle("-fx-background-color: \r\n" + 
-						"        #090a0c,\r\n" + 
-						"        linear-gradient(#38424b 0%, #1f2429 20%, #191d22 100%),\r\n" + 
-						"        linear-gradient(#20262b, #191d22),\r\n" + 
-						"        radial-gradient(center 50% 0%, radius 100%, rgba(73,73,73,0.9), rgba(255,255,255,0));\r\n" + 
-						"    -fx-background-radius: 5,4,3,5;\r\n" + 
-						"    -fx-background-insets: 0,1,2,0;\r\n" + 
-						"    -fx-text-fill: white;\r\n" + 
-						"    -fx-effect: dropshadow( three-pass-box , rgba(0,0,0,0.6) , 5, 0.0 , 0 , 1 );\r\n" + 
-						"    -fx-font-family: \"Impact\";\r\n" + 
-						"    -fx-text-fill: linear-gradient(white, #d0d0d0);\r\n" + 
-						"    -fx-font-size: 20px;\r\n" + 
-						"    -fx-padding: 10 20 10 20;");
+				customScaleButton.setStyle(BUTTON_HOVER_STYLE + "-fx-font-size: 20px;");
 			});
 			
 			
 			customScaleButton.setOnMouseExited( e2 -> {
-				customScaleButton.setStyle("-fx-background-color: \r\n" + 
-						"        #090a0c,\r\n" + 
-						"        linear-gradient(#38424b 0%, #1f2429 20%, #191d22 100%),\r\n" + 
-						"        linear-gradient(#20262b, #191d22),\r\n" + 
-						"        radial-gradient(center 50% 0%, radius 100%, rgba(163,163,163,0.9), rgba(255,255,255,0));\r\n" + 
-						"    -fx-background-radius: 5,4,3,5;\r\n" + 
-						"    -fx-background-insets: 0,1,2,0;\r\n" + 
-						"    -fx-text-fill: white;\r\n" + 
-						"    -fx-effect: dropshadow( three-pass-box , rgba(0,0,0,0.6) , 5, 0.0 , 0 , 1 );\r\n" + 
-						"    -fx-font-family: \"Impact\";\r\n" + 
-						"    -fx-text-fill: linear-gradient(white, #d0d0d0);\r\n" + 
-						"    -fx-font-size: 20px;\r\n" + 
-						"    -fx-padding: 10 20 10 20;");
+				customScaleButton.setStyle(BUTTON_STYLE + "-fx-font-size: 20px;");
 			});
 			customScaleButton.setLayoutX(15);
 			customScaleButton.setLayoutY(140);
 			
 			
 			Button existingScaleButton = new Button("Use Scale Presets");
-			existingScaleButton.setStyle("-fx-background-color: \r\n" + 
-					"        #090a0c,\r\n" + 
-					"        linear-gradient(#38424b 0%, #1f2429 20%, #191d22 100%),\r\n" + 
-					"        linear-gradient(#20262b, #191d22),\r\n" + 
-					"        radial-gradient(center 50% 0%, radius 100%, rgba(163,163,163,0.9), rgba(255,255,255,0));\r\n" + 
-					"    -fx-background-radius: 5,4,3,5;\r\n" + 
-					"    -fx-background-insets: 0,1,2,0;\r\n" + 
-					"    -fx-text-fill: white;\r\n" + 
-					"    -fx-effect: dropshadow( three-pass-box , rgba(0,0,0,0.6) , 5, 0.0 , 0 , 1 );\r\n" + 
-					"    -fx-font-family: \"Impact\";\r\n" + 
-					"    -fx-text-fill: linear-gradient(white, #d0d0d0);\r\n" + 
-					"    -fx-font-size: 20px;\r\n" + 
-					"    -fx-padding: 10 20 10 20;");
+			existingScaleButton.setStyle(BUTTON_STYLE + "-fx-font-size: 20px;");
 			existingScaleButton.setOnMouseEntered( e2 -> {
-				existingScaleButton.setStyle("-fx-background-color: \r\n" + 
-						"        #090a0c,\r\n" + 
-						"        linear-gradient(#38424b 0%, #1f2429 20%, #191d22 100%),\r\n" + 
-						"        linear-gradient(#20262b, #191d22),\r\n" + 
-						"        radial-gradient(center 50% 0%, radius 100%, rgba(73,73,73,0.9), rgba(255,255,255,0));\r\n" + 
-						"    -fx-background-radius: 5,4,3,5;\r\n" + 
-						"    -fx-background-insets: 0,1,2,0;\r\n" + 
-						"    -fx-text-fill: white;\r\n" + 
-						"    -fx-effect: dropshadow( three-pass-box , rgba(0,0,0,0.6) , 5, 0.0 , 0 , 1 );\r\n" + 
-						"    -fx-font-family: \"Impact\";\r\n" + 
-						"    -fx-text-fill: linear-gradient(white, #d0d0d0);\r\n" + 
-						"    -fx-font-size: 20px;\r\n" + 
-						"    -fx-padding: 10 20 10 20;");
+				existingScaleButton.setStyle(BUTTON_HOVER_STYLE + "-fx-font-size: 20px;");
 			});
 		
 			existingScaleButton.setOnMouseExited( e2 -> {
-				existingScaleButton.setStyle("-fx-background-color: \r\n" + 
-						"        #090a0c,\r\n" + 
-						"        linear-gradient(#38424b 0%, #1f2429 20%, #191d22 100%),\r\n" + 
-						"        linear-gradient(#20262b, #191d22),\r\n" + 
-						"        radial-gradient(center 50% 0%, radius 100%, rgba(163,163,163,0.9), rgba(255,255,255,0));\r\n" + 
-						"    -fx-background-radius: 5,4,3,5;\r\n" + 
-						"    -fx-background-insets: 0,1,2,0;\r\n" + 
-						"    -fx-text-fill: white;\r\n" + 
-						"    -fx-effect: dropshadow( three-pass-box , rgba(0,0,0,0.6) , 5, 0.0 , 0 , 1 );\r\n" + 
-						"    -fx-font-family: \"Impact\";\r\n" + 
-						"    -fx-text-fill: linear-gradient(white, #d0d0d0);\r\n" + 
-						"    -fx-font-size: 20px;\r\n" + 
-						"    -fx-padding: 10 20 10 20;");
+				existingScaleButton.setStyle(BUTTON_STYLE + "-fx-font-size: 20px;");
 			});
 			existingScaleButton.setLayoutX(15);
 			existingScaleButton.setLayoutY(70);
@@ -637,6 +730,9 @@ public class LauncherUI extends Application{
 			
 			scaleStage.setOnHidden(e2 -> {
 				soundRun = 0;
+				sound.setSoundRun(0);
+				System.out.println(idleGate.report());
+				System.out.println(noiseGate.report());
 				primaryStage.show();
 			});
 		});
@@ -644,25 +740,15 @@ public class LauncherUI extends Application{
 		intonationButton.setOnAction(e -> {
 			primaryStage.hide();
 			
-			float noteFreq = -1;
-			float noteProb = 0;
-			float openNote = -1;
-			
-			int stringStatus1 = 0;
-			int stringStatus2 = 0;
-			int stringStatus3 = 0;
-			int stringStatus4 = 0;
-			int stringStatus5 = 0;
-			int stringStatus6 = 0;
-			
 			waitingCycleRun = 1;
 			soundRun = 1;
+			sound.setSoundRun(1);
 			
 			Stage intStage = new Stage();
 			Pane intDisplay = new Pane();
 			intDisplay.setPrefSize(700, 410);
 			
-			Image intBackground = new Image("file:resources/images/environment/tunerback.jpg");
+			Image intBackground = assets.image(AssetCache.TOOL_BACKGROUND);
 			ImageView intBkgView = new ImageView(intBackground);
 			
 			Text intTitleText = new Text("Intonation Setup");
@@ -708,7 +794,7 @@ public class LauncherUI extends Application{
 			string6.setLayoutX(430);
 			string6.setLayoutY(205);
 			
-			Image redCheck = new Image("file:resources/images/status/notfinished.png");
+			Image redCheck = assets.image(AssetCache.STATUS_NOT_FINISHED);
 			ImageView redCheckView1 = new ImageView(redCheck);
 			redCheckView1.setLayoutX(5);
 			redCheckView1.setLayoutY(68);
@@ -728,138 +814,80 @@ public class LauncherUI extends Application{
 			redCheckView6.setLayoutX(385);
 			redCheckView6.setLayoutY(178);
 			
-			Image waiting = new Image("file:resources/images/status/waiting.png");
-			ImageView waitingView1 = new ImageView(waiting);
-			waitingView1.setLayoutX(5);
-			waitingView1.setLayoutY(68);
-			ImageView waitingView2 = new ImageView(waiting);
-			waitingView2.setLayoutX(5);
-			waitingView2.setLayoutY(123);
-			ImageView waitingView3 = new ImageView(waiting);
-			waitingView3.setLayoutX(5);
-			waitingView3.setLayoutY(178);
-			ImageView waitingView4 = new ImageView(waiting);
-			waitingView4.setLayoutX(385);
-			waitingView4.setLayoutY(68);
-			ImageView waitingView5 = new ImageView(waiting);
-			waitingView5.setLayoutX(385);
-			waitingView5.setLayoutY(123);
-			ImageView waitingView6 = new ImageView(waiting);
-			waitingView6.setLayoutX(385);
-			waitingView6.setLayoutY(178);
-			
-			Image greenCheck = new Image("file:resources/images/status/finished.png");
-			ImageView greenCheckView1 = new ImageView(greenCheck);
-			greenCheckView1.setLayoutX(5);
-			greenCheckView1.setLayoutY(68);
-			ImageView greenCheckView2 = new ImageView(greenCheck);
-			greenCheckView2.setLayoutX(5);
-			greenCheckView2.setLayoutY(123);
-			ImageView greenCheckView3 = new ImageView(greenCheck);
-			greenCheckView3.setLayoutX(5);
-			greenCheckView3.setLayoutY(178);
-			ImageView greenCheckView4 = new ImageView(greenCheck);
-			greenCheckView4.setLayoutX(385);
-			greenCheckView4.setLayoutY(68);
-			ImageView greenCheckView5 = new ImageView(greenCheck);
-			greenCheckView5.setLayoutX(385);
-			greenCheckView5.setLayoutY(123);
-			ImageView greenCheckView6 = new ImageView(greenCheck);
-			greenCheckView6.setLayoutX(385);
-			greenCheckView6.setLayoutY(178);
+			Image waiting = assets.image(AssetCache.STATUS_WAITING);
+			Image greenCheck = assets.image(AssetCache.STATUS_FINISHED);
+			
+			//Each string's status icon and name, plus a line below the name for its captured values
+			ImageView[] statusViews = {redCheckView1, redCheckView2, redCheckView3, redCheckView4, redCheckView5, redCheckView6};
+			Text[] stringTexts = {string1, string2, string3, string4, string5, string6};
+			Text[] detailTexts = new Text[IntonationEngine.STRINGS];
+			for(int s = 0; s < IntonationEngine.STRINGS; s++) {
+				detailTexts[s] = new Text(s == 0 ? "Play the open string" : "");
+				detailTexts[s].setFill(Color.WHITE);
+				detailTexts[s].setFont(Font.font(15));
+				detailTexts[s].setLayoutX(stringTexts[s].getLayoutX());
+				detailTexts[s].setLayoutY(stringTexts[s].getLayoutY() + 22);
+			}
 			
 			intDisplay.getChildren().addAll(intBkgView, intTitleText, string1, string2, string3, string4,
 					string5, string6, redCheckView1, redCheckView2, redCheckView3, redCheckView4, redCheckView5,
 					redCheckView6);
+			intDisplay.getChildren().addAll(detailTexts);
 			
 			Scene intScene = new Scene(intDisplay);
 			intStage.setScene(intScene);
 			intStage.setTitle("Guitar Helper - Intonation Checking Tool");
 			intStage.show();
 			
-			//THREAD NOT FUNCTIONING PROPERLY; REIMPLEMENT AT A LATER DATE
-			/* 
-			Thread waitingCycle = new Thread() {
+			
+			//Spins the icon of any string that is part way through its check
+			AnimationTimer waitingCycle = new AnimationTimer() {
 				@Override
-				public void run() {
-					if(waitingCycleRun == 1) {
-						waitingView1.setRotate(waitingView1.getRotate()+5);
-						waitingView2.setRotate(waitingView1.getRotate()+1);
-						waitingView3.setRotate(waitingView1.getRotate()+1);
-						waitingView4.setRotate(waitingView1.getRotate()+1);
-						waitingView5.setRotate(waitingView1.getRotate()+1);
-						waitingView6.setRotate(waitingView1.getRotate()+1);
-						
+				public void handle(long now) {
+					for(ImageView statusView : statusViews) {
+						if(statusView.getImage() == waiting) {
+							statusView.setRotate(statusView.getRotate() + 5);
+						}
 					}
 				}
 			};
 			waitingCycle.start();
-			*/
-			 
-			Thread intUpdater = new Thread() {
-				/**
-				 * Standard run method in charge for execution of the intUpdater Thread. Involves handling of all pseudo-
-				 * trigger based execution particularly within the intonation tool
-				 */
-				@Override
-				public void run() {
-					float noteFreq = sound.getNoteFreq();
-					float noteProb = sound.getNoteProb();
-					if(noteFreq != -1 && noteProb > .98) {
-						sound.setOpenNote(noteFreq);
-					}
-					
-					if(sound.getStringStatus1() == 0 && sound.getOpenNote() != -1) {
-						noteFreq = -1;
-						string1.setFill(Color.ORANGE);
-						Platform.runLater(new Runnable() {
-							public void run() {
-								intDisplay.getChildren().removeAll(redCheckView1);
-								intDisplay.getChildren().add(waitingView1);
-							}
-							
-						});
-						
-						sound.setStringStatus1(1);
-					}
-					else if(stringStatus2 == 0) {
-						
-						
-						
-						sound.setStringStatus2(1);
-					}
-					else if(stringStatus3 == 0) {
-						
-						
-						
-						sound.setStringStatus3(1);
-					}
-					else if(stringStatus4 == 0) {
-						
-						
-						
-						sound.setStringStatus4(1);
+			
+			//Only called on the FX thread, once per state transition; the capture itself runs on the audio thread
+			intonationEngine.start((string, state, cents) -> {
+				if(state == IntonationEngine.OPEN_CAPTURED) {
+					statusViews[string].setImage(waiting);
+					stringTexts[string].setFill(Color.ORANGE);
+					detailTexts[string].setText(String.format("Open %+.1f cents, now fret the 12th", cents));
+				}
+				else if(state == IntonationEngine.VERDICT) {
+					statusViews[string].setImage(greenCheck);
+					statusViews[string].setRotate(0);
+					if(Math.abs(cents) <= IntonationEngine.TOLERANCE_CENTS) {
+						stringTexts[string].setFill(Color.LIGHTGREEN);
+						detailTexts[string].setText(String.format("12th fret %+.1f cents, intonation is good", cents));
 					}
-					else if(stringStatus5 == 0) {
-	
-						
-						
-						sound.setStringStatus5(1);
+					else {
+						stringTexts[string].setFill(Color.YELLOW);
+						detailTexts[string].setText(String.format("12th fret %+.1f cents, move saddle %s", cents,
+								cents > 0 ? "back" : "forward"));
 					}
-					else if(stringStatus6 == 0) {
-						
-						
-						
-						sound.setStringStatus6(1);
+					if(string + 1 < IntonationEngine.STRINGS) {
+						detailTexts[string + 1].setText("Play the open string");
 					}
-					
 				}
-			};
-			
-			intUpdater.start();
+			});
+			dispatcher.removeAudioProcessor(pitchProcessor); // the target is known, so the full YIN search is not needed
+			dispatcher.addAudioProcessor(intonationEngine.getDetector());
 			
 			intStage.setOnHidden(e2 -> {
 				soundRun = 0;
+				sound.setSoundRun(0);
+				System.out.println(idleGate.report());
+				System.out.println(noiseGate.report());
+				waitingCycle.stop();
+				dispatcher.removeAudioProcessor(intonationEngine.getDetector());
+				dispatcher.addAudioProcessor(pitchProcessor);
 				waitingCycleRun = 0;
 				primaryStage.show();
 			});
@@ -881,7 +909,7 @@ public class LauncherUI extends Application{
 			loginPane.setPrefSize(500, 300);
 			
 			//Sets up a background image for the login screen, this image will be the same as the createAccount screen
-			Image loginBackground = new Image("file:resources/images/environment/loginBackground.jpg");
+			Image loginBackground = assets.image(AssetCache.LOGIN_BACKGROUND);
 			ImageView loginBackgroundView = new ImageView(loginBackground);
 			loginBackgroundView.setLayoutX(-400);
 			loginBackgroundView.setLayoutY(-200);
@@ -951,18 +979,22 @@ public class LauncherUI extends Application{
 			loginStage.show();
 			
 			loginConfirmButton.setOnAction(e3 -> {
-				try {
-					if(ghDBConnect.login(usernameField.getText(), passwordField.getText())) {
+				loginConfirmButton.setDisable(true); // one attempt at a time while the database answers
+				String username = usernameField.getText();
+				ghAsyncDB.login(username, passwordField.getText()).whenComplete((loggedIn, e1) -> Platform.runLater(() -> {
+					loginConfirmButton.setDisable(false);
+					if(e1 != null) {
+						e1.printStackTrace();
+					}
+					else if(loggedIn) {
+						loggedName = username; // only set here, on the FX thread, once the login is known to have succeeded
 						accountChangeScreen.setText(loggedName);
 						loginStage.hide();
 					}
 					else {
 						
 					}
-				} 
-				catch (SQLException e1) {
-					e1.printStackTrace();
-				}
+				}));
 			});
 			
 			//This event will serve as a way for the user to open up the create account window.
@@ -978,7 +1010,7 @@ public class LauncherUI extends Application{
 				createAccountPane.setPrefSize(500, 300);
 				
 				//Code to setup and include an image background within the window (same picture as login screen).
-				Image createAccountBackground = new Image("file:resources/images/environment/loginBackground.jpg");
+				Image createAccountBackground = assets.image(AssetCache.LOGIN_BACKGROUND);
 				ImageView createAccountBackgroundView = new ImageView(createAccountBackground);
 				createAccountBackgroundView.setLayoutX(-400);
 				createAccountBackgroundView.setLayoutY(-200);
@@ -1045,7 +1077,7 @@ public class LauncherUI extends Application{
 				usernameTakenText.setLayoutX(43);
 				usernameTakenText.setLayoutY(255);
 				
-				Image redCheck = new Image("file:resources/images/status/notfinished.png");
+				Image redCheck = assets.image(AssetCache.STATUS_NOT_FINISHED);
 				ImageView usernameTakenPrompt = new ImageView(redCheck);
 				usernameTakenPrompt.setLayoutX(245);
 				usernameTakenPrompt.setLayoutY(48);
@@ -1092,18 +1124,22 @@ public class LauncherUI extends Application{
 				createAccountConfirmButton.setOnAction( e3 -> {
 					createAccountPane.getChildren().removeAll(usernameTakenText, usernameTakenPrompt, usernameTakenPrompt2,
 														passwordMismatchText, passwordTakenPrompt, passwordTakenPrompt2);
-					int usernameError = 0;
-					int passwordError = 0;
-					try {
-						if(ghDBConnect.isTaken(createAccountUsernameField.getText())){
-							usernameError = 1;
+					String username = createAccountUsernameField.getText();
+					String password = createAccountPasswordField.getText();
+					int passwordError = password.equals(passwordConfirmField.getText()) ? 0 : 1;
+					createAccountConfirmButton.setDisable(true); // one attempt at a time while the database answers
+					// the account is only created once the username is known to be free; the window updates when both are done
+					ghAsyncDB.isTaken(username).thenCompose(taken -> {
+						if(!taken && passwordError == 0) {
+							return ghAsyncDB.createAccount(username, password).thenApply(created -> 0);
 						}
-						if(!createAccountPasswordField.getText().equals(passwordConfirmField.getText())){
-							passwordError = 1;
+						return CompletableFuture.completedFuture(taken ? 1 : 0);
+					}).whenComplete((usernameError, e1) -> Platform.runLater(() -> {
+						createAccountConfirmButton.setDisable(false);
+						if(e1 != null) {
+							e1.printStackTrace();
 						}
-						
-						if(usernameError == 0 && passwordError == 0) {
-							ghDBConnect.createAccount(createAccountUsernameField.getText(), createAccountPasswordField.getText());
+						else if(usernameError == 0 && passwordError == 0) {
 							createAccountConfirmButton.setDisable(true);
 							createAccountConfirmButton.setText("Account Created");
 						}
@@ -1116,14 +1152,76 @@ public class LauncherUI extends Application{
 						else {
 							createAccountPane.getChildren().addAll(usernameTakenText, usernameTakenPrompt, usernameTakenPrompt2,passwordMismatchText, passwordTakenPrompt, passwordTakenPrompt2);
 						}
-					} catch (SQLException e1) {
-						e1.printStackTrace();
-					}
+					}));
 				});
 			});
 		});
 		
 	}
+	
+	/**
+	 * Copies the strum tuner's latest readings and updates the text of every string whose whole cents value changed.
+	 * Called from updateTuner, so it runs on the JavaFX thread.
+	 */
+	public void updateStrumTexts() {
+		strumTuner.readCents(strumCents);
+		for(int s = 0; s < StrumTuner.STRINGS; s++) {
+			int shown = Float.isNaN(strumCents[s]) ? Integer.MAX_VALUE : Math.round(strumCents[s]);
+			if(shown == strumShown[s]) {
+				continue;
+			}
+			strumShown[s] = shown;
+			if(shown == Integer.MAX_VALUE) {
+				strumTexts[s].setText(strumLabel(s) + "   --");
+			}
+			else {
+				strumTexts[s].setText(strumLabel(s) + "   " + (shown > 0 ? "+" : "") + shown + " cents");
+			}
+		}
+	}
+	
+	/**
+	 * Reads the --decimate launch argument, which must divide the capture profile's buffer size
+	 * @param decimate The argument's value, or null if it was not given
+	 * @return The decimation factor, or 1 (no decimation) if the argument was missing or invalid
+	 */
+	public int decimationFactor(String decimate) {
+		if(decimate == null) {
+			return 1;
+		}
+		try {
+			int factor = Integer.parseInt(decimate.trim());
+			if(factor >= 1 && captureProfile.getBufferSize() % factor == 0) {
+				return factor;
+			}
+		}
+		catch(NumberFormatException e) {
+		}
+		System.out.println("***INVALID DECIMATE FACTOR \"" + decimate + "\" FOR A " + captureProfile.getBufferSize()
+				+ " SAMPLE BUFFER, NOT DECIMATING***");
+		return 1;
+	}
+
+	/**
+	 * Builds the name and octave of an open string, such as E2
+	 * @param string The string, 0 being low E
+	 * @return The label shown in front of the string's reading
+	 */
+	public String strumLabel(int string) {
+		int index = NoteTable.STANDARD_TUNING[string];
+		return noteTable.getNoteName(index) + noteTable.getOctave(index);
+	}
+
+	/**
+	 * Standard javafx stop method, called once the last window has closed. Stops the worker threads of an ensemble
+	 * pitch processor, which are kept alive while the processor is swapped out for the intonation tool.
+	 */
+	@Override
+	public void stop() {
+		if(pitchProcessor instanceof EnsemblePitchProcessor) {
+			((EnsemblePitchProcessor) pitchProcessor).shutdown();
+		}
+	}
 
 	/**
 	 * Standard java main class, used solely for the javafx application to launch successfully.